@@ -0,0 +1,96 @@
+package com.fittracker.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+// Houdt reeds gevalideerde tokens bij, zodat herhaalde requests met hetzelfde token
+// het parsen en de signatuurcontrole overslaan.
+// - key = SHA-256 van het token (het token zelf staat niet in het geheugen als key)
+// - een entry verloopt op de exp van het token (en na max-ttl); tokens zonder exp worden niet gecached
+// - enkel geldige tokens worden gecached; een fout gaat telkens opnieuw naar de delegate
+public class CachingJwtDecoder implements ReactiveJwtDecoder {
+
+  private final ReactiveJwtDecoder delegate;
+  private final Cache<String, Jwt> cache;
+  private final Clock clock;
+
+  public CachingJwtDecoder(ReactiveJwtDecoder delegate, long maxSize, Duration maxTtl, Clock clock) {
+    this.delegate = delegate;
+    this.clock = clock;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new Expiry<String, Jwt>() {
+          @Override
+          public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            return remaining(jwt, maxTtl).toNanos();
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return remaining(jwt, maxTtl).toNanos();
+          }
+
+          @Override
+          public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+  }
+
+  // Metrics onder cache.gets{cache=gateway.jwt} enz.
+  public CachingJwtDecoder monitor(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "gateway.jwt");
+    return this;
+  }
+
+  @Override
+  public Mono<Jwt> decode(String token) {
+    String key = hash(token);
+    Jwt cached = cache.getIfPresent(key);
+    // extra check: de cache ruimt verlopen entries lui op
+    if (cached != null && cached.getExpiresAt() != null && cached.getExpiresAt().isAfter(clock.instant())) {
+      return Mono.just(cached);
+    }
+    return delegate.decode(token).doOnNext(jwt -> {
+      if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(clock.instant())) cache.put(key, jwt);
+    });
+  }
+
+  long size() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  private Duration remaining(Jwt jwt, Duration maxTtl) {
+    Instant exp = jwt.getExpiresAt();
+    if (exp == null) return Duration.ZERO;
+    Duration left = Duration.between(clock.instant(), exp);
+    if (left.isNegative()) return Duration.ZERO;
+    return left.compareTo(maxTtl) > 0 ? maxTtl : left;
+  }
+
+  static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
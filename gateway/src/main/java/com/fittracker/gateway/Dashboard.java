@@ -0,0 +1,108 @@
+package com.fittracker.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+// Startscherm in één request: user, recente workouts en progress.
+// De drie services worden tegelijk aangesproken (Mono.zip), dus de wachttijd is die van de traagste
+// i.p.v. de som. Elke call heeft een eigen timeout; faalt er één, dan komt dat deel als null terug
+// met de reden in "errors" en "partial": true, de rest van het dashboard blijft bruikbaar.
+@Component
+public class Dashboard {
+
+  private static final Logger log = LoggerFactory.getLogger(Dashboard.class);
+
+  public record Result(UUID userId, JsonNode user, JsonNode recentWorkouts, JsonNode progress,
+                       boolean partial, Map<String, String> errors) { }
+
+  // Eén deel van het dashboard: de data, of null met de reden
+  private record Part(JsonNode value, String error) { }
+
+  private final WebClient users;
+  private final WebClient workouts;
+  private final WebClient progress;
+  private final Duration timeout;
+  private final int recentWorkouts;
+
+  public Dashboard(WebClient.Builder http,
+                   @Value("${gateway.users-uri:http://users-service:8081}") String usersUri,
+                   @Value("${gateway.workouts-uri:http://workouts-service:8082}") String workoutsUri,
+                   @Value("${gateway.progress-uri:http://progress-service:8083}") String progressUri,
+                   @Value("${gateway.dashboard.timeout:1s}") Duration timeout,
+                   @Value("${gateway.dashboard.recent-workouts:5}") int recentWorkouts) {
+    this.users = http.clone().baseUrl(usersUri).build();
+    this.workouts = http.clone().baseUrl(workoutsUri).build();
+    this.progress = http.clone().baseUrl(progressUri).build();
+    this.timeout = timeout;
+    this.recentWorkouts = recentWorkouts;
+  }
+
+  public Mono<Result> load(UUID userId) {
+    Mono<Part> user = call("user", users.get().uri("/users/{id}", userId), userId);
+    Mono<Part> recent = call("recentWorkouts", workouts.get()
+        .uri(b -> b.path("/workouts").queryParam("userId", userId).queryParam("limit", recentWorkouts).build()), userId);
+    Mono<Part> prog = call("progress", progress.get()
+        .uri(b -> b.path("/progress").queryParam("userId", userId).build()), userId);
+
+    return Mono.zip(user, recent, prog).map(t -> {
+      Map<String, String> errors = new LinkedHashMap<>();
+      if (t.getT1().error() != null) errors.put("user", t.getT1().error());
+      if (t.getT2().error() != null) errors.put("recentWorkouts", t.getT2().error());
+      if (t.getT3().error() != null) errors.put("progress", t.getT3().error());
+      // workouts komen als pagina {items, next}: enkel de items tonen
+      JsonNode page = t.getT2().value();
+      JsonNode items = (page != null && page.has("items")) ? page.get("items") : page;
+      return new Result(userId, t.getT1().value(), items, t.getT3().value(), !errors.isEmpty(), errors);
+    });
+  }
+
+  // User id kon niet opgezocht worden (users-service traag of weg): geen enkel deel te laden,
+  // maar wel hetzelfde antwoord als bij een falend deel i.p.v. een 500
+  public Result unresolved(Throwable e) {
+    String reason = "user id lookup failed: " + reason(e);
+    log.warn("dashboard: {}", reason);
+    Map<String, String> errors = new LinkedHashMap<>();
+    errors.put("user", reason);
+    errors.put("recentWorkouts", reason);
+    errors.put("progress", reason);
+    return new Result(null, null, null, null, true, errors);
+  }
+
+  // Eén downstream call met timeout; een fout wordt een leeg deel met de reden
+  // i.p.v. het hele dashboard te laten falen
+  private Mono<Part> call(String part, WebClient.RequestHeadersSpec<?> request, UUID userId) {
+    return request
+        .header(UserIdFilter.HEADER, userId.toString())
+        .retrieve()
+        .bodyToMono(JsonNode.class)
+        .timeout(timeout)
+        .map(body -> new Part(body, null))
+        .defaultIfEmpty(new Part(null, "empty response"))
+        .onErrorResume(e -> {
+          String reason = (e instanceof TimeoutException) ? "timeout after " + timeout.toMillis() + "ms" : reason(e);
+          log.warn("dashboard {} for {} failed: {}", part, userId, reason);
+          return Mono.just(new Part(null, reason));
+        });
+  }
+
+  // Korte reden voor in "errors": timeout, HTTP status van de service of connectiefout
+  static String reason(Throwable e) {
+    if (e instanceof TimeoutException) return "timeout";
+    if (e instanceof WebClientResponseException w) return "status " + w.getStatusCode().value();
+    if (e instanceof WebClientRequestException w) return "connect error: " + w.getMostSpecificCause().getMessage();
+    return e.getClass().getSimpleName() + ": " + e.getMessage();
+  }
+}
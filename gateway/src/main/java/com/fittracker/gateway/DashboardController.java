@@ -0,0 +1,34 @@
+package com.fittracker.gateway;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Endpoints die de gateway zelf beantwoordt (geen route naar één service)
+@RestController
+public class DashboardController {
+
+  private final Dashboard dashboard;
+  private final UserIdResolver userIds;
+
+  public DashboardController(Dashboard dashboard, UserIdResolver userIds) {
+    this.dashboard = dashboard;
+    this.userIds = userIds;
+  }
+
+  // user + recente workouts + progress van de ingelogde user in één antwoord
+  // 404 als er voor de email in het token (nog) geen user bestaat;
+  // faalt de lookup van het user id, dan een partial antwoord zoals bij een falend deel
+  @GetMapping("/api/dashboard")
+  public Mono<ResponseEntity<Dashboard.Result>> dashboard(ServerWebExchange exchange) {
+    return exchange.getPrincipal()
+        .mapNotNull(UserIdFilter::email)
+        .flatMap(email -> userIds.resolve(email)
+            .flatMap(dashboard::load)
+            .onErrorResume(e -> Mono.just(dashboard.unresolved(e))))
+        .map(ResponseEntity::ok)
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+}
@@ -0,0 +1,151 @@
+package com.fittracker.gateway;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Publieke sleutels (JWK set) van de issuer, lokaal bijgehouden.
+//
+// - bij het opstarten: laatst gekende set uit een bestand laden, de issuer wordt op de achtergrond opgehaald
+//   (de gateway start dus ook als accounts.google.com even niet bereikbaar is)
+// - daarna om de refresh-interval opnieuw ophalen; elke geldige set wordt weggeschreven als last-known-good
+// - onbekende kid (sleutelrotatie): meteen opnieuw ophalen, maar hoogstens één keer per min-refresh-interval
+// - ophalen mislukt: de vorige set blijft gewoon in gebruik
+@Component
+public class JwkSetRefresher implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(JwkSetRefresher.class);
+
+  private final WebClient http;
+  private final String jwkSetUri;
+  private final Path file;
+  private final Duration refreshInterval;
+  private final Duration minRefreshInterval;
+
+  private final AtomicReference<JWKSet> keys = new AtomicReference<>(new JWKSet());
+  private final AtomicLong lastAttempt = new AtomicLong();
+  private volatile Disposable schedule;
+
+  public JwkSetRefresher(WebClient.Builder http,
+                         @Value("${gateway.jwt.jwk-set-uri:https://www.googleapis.com/oauth2/v3/certs}") String jwkSetUri,
+                         @Value("${gateway.jwt.jwk-set-file:${java.io.tmpdir}/gateway-jwks.json}") Path file,
+                         @Value("${gateway.jwt.refresh-interval:1h}") Duration refreshInterval,
+                         @Value("${gateway.jwt.min-refresh-interval:1m}") Duration minRefreshInterval) {
+    this.http = http.build();
+    this.jwkSetUri = jwkSetUri;
+    this.file = file;
+    this.refreshInterval = refreshInterval;
+    this.minRefreshInterval = minRefreshInterval;
+  }
+
+  // Sleutels die bij de header van dit token passen (kid, alg, ...)
+  public Flux<JWK> keys(SignedJWT jwt) {
+    JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+    List<JWK> found = selector.select(keys.get());
+    if (!found.isEmpty()) return Flux.fromIterable(found);
+    // misschien een nieuwe sleutel: één keer opnieuw ophalen en nog eens proberen
+    return refreshIfAllowed().flatMapIterable(selector::select);
+  }
+
+  public JWKSet current() {
+    return keys.get();
+  }
+
+  // Set ophalen bij de issuer; bij een fout blijft de huidige set staan
+  public Mono<JWKSet> refresh() {
+    lastAttempt.set(System.nanoTime());
+    return http.get().uri(jwkSetUri).retrieve().bodyToMono(String.class)
+        .map(JwkSetRefresher::parse)
+        .flatMap(set -> Mono.fromCallable(() -> {
+          keys.set(set);
+          persist(set);
+          return set;
+        }).subscribeOn(Schedulers.boundedElastic()))
+        .onErrorResume(e -> {
+          log.warn("could not refresh JWK set from {}, keeping {} known keys: {}", jwkSetUri, keys.get().size(), e.getMessage());
+          return Mono.just(keys.get());
+        });
+  }
+
+  private Mono<JWKSet> refreshIfAllowed() {
+    long sinceLast = System.nanoTime() - lastAttempt.get();
+    if (lastAttempt.get() != 0 && sinceLast < minRefreshInterval.toNanos()) return Mono.just(keys.get());
+    return refresh();
+  }
+
+  // Last-known-good set laden (geen fout als het bestand ontbreekt of kapot is)
+  void load() {
+    if (!Files.exists(file)) return;
+    try {
+      keys.set(parse(Files.readString(file, StandardCharsets.UTF_8)));
+      log.info("loaded {} JWKs from {}", keys.get().size(), file);
+    } catch (IOException | RuntimeException e) {
+      log.warn("could not read last known JWK set from {}: {}", file, e.getMessage());
+    }
+  }
+
+  // Eerst naar een tijdelijk bestand en dan verplaatsen, zodat er nooit een half bestand staat
+  private void persist(JWKSet set) {
+    try {
+      Path dir = file.toAbsolutePath().getParent();
+      if (dir != null) Files.createDirectories(dir);
+      Path tmp = Files.createTempFile(dir, "jwks", ".tmp");
+      Files.writeString(tmp, set.toString(true), StandardCharsets.UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("could not persist JWK set to {}: {}", file, e.getMessage());
+    }
+  }
+
+  // Enkel publieke sleutels bewaren
+  private static JWKSet parse(String json) {
+    try {
+      return JWKSet.parse(json).toPublicJWKSet();
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("invalid JWK set: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void start() {
+    load();
+    schedule = Flux.interval(Duration.ZERO, refreshInterval)
+        .onBackpressureDrop()
+        .concatMap(i -> refresh())
+        .subscribe();
+  }
+
+  @Override
+  public void stop() {
+    if (schedule != null) schedule.dispose();
+    schedule = null;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return schedule != null;
+  }
+}
@@ -0,0 +1,29 @@
+package com.fittracker.gateway;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// JWT validatie voor /api/**: signatuur tegen de lokaal bijgehouden JWK set (JwkSetRefresher),
+// issuer + exp/nbf checks, en een cache van reeds gevalideerde tokens (CachingJwtDecoder).
+// Vervangt spring.security.oauth2.resourceserver.jwt.issuer-uri, dat bij het opstarten de issuer moest bereiken.
+@Configuration
+public class JwtConfig {
+
+  @Bean
+  ReactiveJwtDecoder jwtDecoder(JwkSetRefresher jwks, MeterRegistry registry,
+                                @Value("${gateway.jwt.issuer:https://accounts.google.com}") String issuer,
+                                @Value("${gateway.jwt.cache.max-size:10000}") long maxSize,
+                                @Value("${gateway.jwt.cache.max-ttl:1h}") Duration maxTtl) {
+    NimbusReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withJwkSource(jwks::keys).build();
+    nimbus.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+    return new CachingJwtDecoder(nimbus, maxSize, maxTtl, Clock.systemUTC()).monitor(registry);
+  }
+}
@@ -0,0 +1,93 @@
+package com.fittracker.gateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-flight voor GET: gelijktijdige identieke requests (zelfde route, pad, query, Accept en gebruiker)
+// delen één request naar de service, bv. wanneer veel clients tegelijk het leaderboard verversen.
+// De eerste request (leader) gaat door; wie binnenkomt zolang die loopt, krijgt hetzelfde antwoord (Mono.cache).
+// Daarna wordt de key meteen vrijgegeven: dit is geen cache, enkel het delen van een lopende request.
+// Antwoorden die ResponseCapture niet opvangt (streams, niet-200, groter dan max-size) gaan enkel naar de leader;
+// de meelifters sturen dan zelf hun request door.
+@Component
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+
+  private record Flight(ServerWebExchange leader, Mono<Optional<ResponseCapture.Captured>> response) { }
+
+  private final Map<ResponseCacheFilter.Key, Flight> inFlight = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final long maxBytes;
+  private final Counter coalesced;
+
+  public RequestCoalescingFilter(MeterRegistry registry,
+                                 @Value("${gateway.coalescing.enabled:true}") boolean enabled,
+                                 @Value("${gateway.coalescing.max-size:1MB}") DataSize maxSize) {
+    this.enabled = enabled;
+    this.maxBytes = maxSize.toBytes();
+    this.coalesced = Counter.builder("gateway.coalesced")
+        .description("GET requests die een lopende identieke request deelden")
+        .register(registry);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+    if (!enabled || route == null || !HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+      return chain.filter(exchange);
+    }
+
+    return exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("")
+        .flatMap(principal -> {
+          ResponseCacheFilter.Key key = ResponseCacheFilter.Key.of(route.getId(), principal, exchange.getRequest());
+          Flight flight = inFlight.computeIfAbsent(key, k -> start(k, exchange, chain));
+          if (flight.leader() == exchange) {
+            return flight.response().flatMap(r -> r.map(c -> c.writeTo(exchange)).orElseGet(Mono::empty));
+          }
+          coalesced.increment();
+          return flight.response().flatMap(r -> r.map(c -> c.writeTo(exchange))
+              .orElseGet(() -> chain.filter(exchange)));
+        });
+  }
+
+  // Request van de leader doorsturen; het resultaat wordt bewaard tot iedereen het heeft (cache).
+  // De key wordt vrijgegeven vóór het antwoord verder gaat (niet in doFinally): anders kan een request
+  // die net daarna binnenkomt nog aansluiten bij een afgewerkte flight en een oud antwoord krijgen.
+  private Flight start(ResponseCacheFilter.Key key, ServerWebExchange leader, GatewayFilterChain chain) {
+    Runnable release = () -> inFlight.computeIfPresent(key, (k, f) -> f.leader() == leader ? null : f);
+    Mono<Optional<ResponseCapture.Captured>> response = ResponseCapture.capture(leader, chain, maxBytes)
+        .map(Optional::of)
+        .defaultIfEmpty(Optional.empty())
+        .doOnNext(r -> release.run())
+        .doOnError(e -> release.run())
+        .doOnCancel(release)
+        .cache();
+    return new Flight(leader, response);
+  }
+
+  int inFlight() {
+    return inFlight.size();
+  }
+
+  // Na ResponseCacheFilter (cache hits wachten niet), vóór NettyWriteResponseFilter
+  @Override
+  public int getOrder() {
+    return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+  }
+}
@@ -0,0 +1,165 @@
+package com.fittracker.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache voor GET antwoorden van de routes, per route en per ingelogde gebruiker.
+// - enkel routes met metadata cache-ttl (application.yml) worden gecached, met die TTL
+// - begrensd in bytes (max-size); een te groot antwoord gaat gewoon door zonder bewaard te worden
+// - sterke ETag (SHA-256 van de body); If-None-Match die overeenkomt → 304 zonder de service te raken
+// - een geslaagde PUT/POST/DELETE/PATCH wist de entries van hetzelfde pad, de bovenliggende paden
+//   (collecties zoals /api/workouts) en de onderliggende paden, voor alle gebruikers;
+//   POSTs die enkel lezen (read-only-posts, bv. /api/users/lookup) wissen niets
+// Streams (NDJSON) en antwoorden met Set-Cookie of Cache-Control: no-store/private worden niet bewaard.
+// Cache-Control: no-cache van de client slaat de cache over (het verse antwoord wordt wel bewaard).
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+  public static final String TTL_METADATA = "cache-ttl";
+
+  private static final Set<HttpMethod> WRITES = Set.of(HttpMethod.PUT, HttpMethod.POST, HttpMethod.DELETE, HttpMethod.PATCH);
+
+  // Ook gebruikt door RequestCoalescingFilter
+  record Key(String route, String principal, String path, String query, String accept) {
+
+    static Key of(String route, String principal, ServerHttpRequest request) {
+      return new Key(route, principal, request.getPath().value(),
+          Objects.toString(request.getURI().getRawQuery(), ""),
+          String.join(",", request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT)));
+    }
+  }
+
+  record Entry(ResponseCapture.Captured response, Duration ttl) { }
+
+  private final Cache<Key, Entry> cache;
+  private final long maxEntryBytes;
+  private final boolean enabled;
+  private final Set<String> readOnlyPosts;
+
+  // Per route verhoogd bij elke invalidatie: een GET op die route die ervoor vertrok kan oude data
+  // bevatten en wordt niet bewaard. Per route, zoals de invalidatie zelf: een write op progress
+  // houdt de GETs op users niet tegen.
+  private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  public ResponseCacheFilter(MeterRegistry registry,
+                             @Value("${gateway.response-cache.enabled:true}") boolean enabled,
+                             @Value("${gateway.response-cache.max-size:64MB}") DataSize maxSize,
+                             @Value("${gateway.response-cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                             @Value("${gateway.response-cache.read-only-posts:/api/users/lookup}") Set<String> readOnlyPosts) {
+    this.enabled = enabled;
+    this.readOnlyPosts = Set.copyOf(readOnlyPosts);
+    this.maxEntryBytes = maxEntrySize.toBytes();
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maxSize.toBytes())
+        .weigher((Key k, Entry e) -> (int) Math.min(Integer.MAX_VALUE, e.response().weight()))
+        .expireAfter(new Expiry<Key, Entry>() {
+          // TTL van de route vanaf het bewaren; lezen verlengt niet
+          @Override public long expireAfterCreate(Key k, Entry e, long now) { return e.ttl().toNanos(); }
+          @Override public long expireAfterUpdate(Key k, Entry e, long now, long current) { return e.ttl().toNanos(); }
+          @Override public long expireAfterRead(Key k, Entry e, long now, long current) { return current; }
+        })
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, cache, "gateway.response");
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    if (!enabled) return chain.filter(exchange);
+    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+    if (route == null) return chain.filter(exchange);
+
+    HttpMethod method = exchange.getRequest().getMethod();
+    String path = exchange.getRequest().getPath().value();
+    if (WRITES.contains(method) && !(HttpMethod.POST.equals(method) && readOnlyPosts.contains(path))) {
+      return chain.filter(exchange).doOnSuccess(v -> {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status != null && status.is2xxSuccessful()) invalidate(route.getId(), path);
+      });
+    }
+
+    Duration ttl = ttl(route);
+    if (!HttpMethod.GET.equals(method) || ttl == null) return chain.filter(exchange);
+
+    return exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("")
+        .flatMap(principal -> {
+          Key key = Key.of(route.getId(), principal, exchange.getRequest());
+          if (!noCache(exchange.getRequest())) {
+            Entry hit = cache.getIfPresent(key);
+            if (hit != null) return hit.response().writeTo(exchange);
+          }
+          AtomicLong generation = generation(route.getId());
+          long startedAt = generation.get();
+          return ResponseCapture.capture(exchange, chain, maxEntryBytes).flatMap(response -> {
+            if (generation.get() == startedAt) {
+              cache.put(key, new Entry(response, ttl));
+            }
+            return response.writeTo(exchange);
+          });
+        });
+  }
+
+  // Entries van dit pad, de bovenliggende en de onderliggende paden op dezelfde route wissen
+  void invalidate(String route, String path) {
+    generation(route).incrementAndGet();
+    cache.asMap().keySet().removeIf(k -> k.route().equals(route) && related(k.path(), path));
+  }
+
+  static boolean related(String cached, String written) {
+    return cached.equals(written) || cached.startsWith(written + "/") || written.startsWith(cached + "/");
+  }
+
+  private AtomicLong generation(String route) {
+    return generations.computeIfAbsent(route, r -> new AtomicLong());
+  }
+
+  long size() {
+    return cache.estimatedSize();
+  }
+
+  private static boolean noCache(ServerHttpRequest request) {
+    return request.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL).stream().anyMatch(v -> v.contains("no-cache"));
+  }
+
+  // null → route wordt niet gecached
+  private static Duration ttl(Route route) {
+    Object value = route.getMetadata().get(TTL_METADATA);
+    if (value == null) return null;
+    Duration ttl = (value instanceof Number n) ? Duration.ofSeconds(n.longValue()) : DurationStyle.detectAndParse(value.toString());
+    return ttl.isNegative() || ttl.isZero() ? null : ttl;
+  }
+
+  // Vóór NettyWriteResponseFilter, zodat die het antwoord in de ResponseCapture decorator schrijft,
+  // en vóór RequestCoalescingFilter: een cache hit hoeft niet te wachten op een lopende request
+  @Override
+  public int getOrder() {
+    return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+  }
+}
@@ -0,0 +1,134 @@
+package com.fittracker.gateway;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Volledig antwoord van een service (status, headers, body) in het geheugen opvangen i.p.v. het meteen
+// naar de client te schrijven, zodat het bewaard (ResponseCacheFilter) of gedeeld kan worden.
+// Enkel 200-antwoorden met een gewone body tot een maximale grootte; grotere antwoorden, streams (NDJSON, SSE), andere statussen en antwoorden met
+// Set-Cookie of Cache-Control: no-store/private gaan ongewijzigd door naar de client.
+final class ResponseCapture {
+
+  // Headers die bij de request horen of die de gateway zelf zet, niet mee bewaren
+  private static final Set<String> SKIP_HEADERS = Set.of(
+      "content-length", "transfer-encoding", "connection", "date", "etag", "vary");
+
+  // Opgevangen antwoord met een sterke ETag (SHA-256 van de body)
+  record Captured(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag) {
+
+    long weight() {
+      return body.length + 256L;
+    }
+
+    // Naar de client schrijven; komt de ETag overeen met If-None-Match → 304 zonder body
+    Mono<Void> writeTo(ServerWebExchange exchange) {
+      ServerHttpResponse response = exchange.getResponse();
+      headers.forEach((name, values) -> response.getHeaders().put(name, values));
+      response.getHeaders().setETag(etag);
+      response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+      if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), etag)) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        return response.setComplete();
+      }
+      response.setStatusCode(status);
+      response.getHeaders().setContentLength(body.length);
+      return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+  }
+
+  private ResponseCapture() { }
+
+  // Request doorsturen en het antwoord opvangen. Leeg → het antwoord was niet op te vangen
+  // en is al rechtstreeks naar de client geschreven.
+  // De body wordt geteld terwijl hij binnenkomt: zodra hij groter is dan maxBytes stopt het opvangen
+  // en gaan de al ontvangen en de resterende buffers ongewijzigd door naar de client.
+  static Mono<Captured> capture(ServerWebExchange exchange, GatewayFilterChain chain, long maxBytes) {
+    AtomicReference<Captured> captured = new AtomicReference<>();
+    ServerHttpResponse original = exchange.getResponse();
+
+    ServerHttpResponseDecorator decorator = new ServerHttpResponseDecorator(original) {
+      @Override
+      public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (!capturable(getStatusCode(), getHeaders()) || getHeaders().getContentLength() > maxBytes) {
+          return super.writeWith(body);
+        }
+        // Buffers bijhouden tot de limiet overschreden is; eronder komt de eerste lijst pas bij het einde
+        AtomicLong size = new AtomicLong();
+        Flux<List<DataBuffer>> chunks = Flux.<DataBuffer>from(body)
+            .bufferUntil(buffer -> size.addAndGet(buffer.readableByteCount()) > maxBytes);
+        return chunks.switchOnFirst((first, all) -> {
+          Flux<DataBuffer> buffers = all.flatMapIterable(list -> list);
+          if (size.get() > maxBytes) return super.writeWith(buffers);
+          return DataBufferUtils.join(buffers).map(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            return bytes;
+          }).defaultIfEmpty(new byte[0]).doOnNext(bytes ->
+              captured.set(new Captured(getStatusCode(), copy(getHeaders()), bytes, etag(bytes)))).then();
+        }).then();
+      }
+    };
+
+    return chain.filter(exchange.mutate().response(decorator).build())
+        .then(Mono.fromSupplier(captured::get));
+  }
+
+  static boolean capturable(HttpStatusCode status, HttpHeaders headers) {
+    if (status == null || status.value() != HttpStatus.OK.value()) return false;
+    if (headers.containsKey(HttpHeaders.SET_COOKIE)) return false;
+    String cacheControl = String.valueOf(headers.getCacheControl()).toLowerCase(Locale.ROOT);
+    if (cacheControl.contains("no-store") || cacheControl.contains("private")) return false;
+    MediaType type = headers.getContentType();
+    return type == null || !(type.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+        || type.isCompatibleWith(MediaType.TEXT_EVENT_STREAM));
+  }
+
+  private static HttpHeaders copy(HttpHeaders source) {
+    HttpHeaders copy = new HttpHeaders();
+    source.forEach((name, values) -> {
+      String lower = name.toLowerCase(Locale.ROOT);
+      // CORS headers zet de gateway per request zelf
+      if (SKIP_HEADERS.contains(lower) || lower.startsWith("access-control-")) return;
+      copy.put(name, values);
+    });
+    return HttpHeaders.readOnlyHttpHeaders(copy);
+  }
+
+  static String etag(byte[] body) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+      return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static boolean matches(List<String> ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch) {
+      if (candidate.equals("*") || candidate.equals(etag)) return true;
+    }
+    return false;
+  }
+}
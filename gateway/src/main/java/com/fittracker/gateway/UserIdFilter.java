@@ -0,0 +1,77 @@
+package com.fittracker.gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.UUID;
+
+// Zet de user id van de ingelogde gebruiker in X-User-Id op elke doorgestuurde request,
+// zodat clients na het inloggen niet eerst zelf hun id moeten opzoeken (GET /api/users?email=).
+// - een X-User-Id van de client wordt altijd verwijderd: downstream mag de header vertrouwen
+// - enkel voor een geverifieerde email (email_verified is niet false)
+// - lukt het opzoeken niet (nog geen user, users-service weg), dan gaat de request gewoon door zonder header
+@Component
+public class UserIdFilter implements GlobalFilter, Ordered {
+
+  public static final String HEADER = "X-User-Id";
+
+  private static final Logger log = LoggerFactory.getLogger(UserIdFilter.class);
+
+  private final UserIdResolver resolver;
+
+  public UserIdFilter(UserIdResolver resolver) {
+    this.resolver = resolver;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    ServerWebExchange stripped = exchange.getRequest().getHeaders().containsKey(HEADER)
+        ? exchange.mutate().request(r -> r.headers(h -> h.remove(HEADER))).build()
+        : exchange;
+
+    return stripped.getPrincipal()
+        .mapNotNull(UserIdFilter::email)
+        .flatMap(email -> resolver.resolve(email)
+            .onErrorResume(e -> {
+              log.warn("could not resolve user id for {}: {}", email, e.getMessage());
+              return Mono.empty();
+            }))
+        .map(id -> withUserId(stripped, id))
+        .defaultIfEmpty(stripped)
+        .flatMap(chain::filter);
+  }
+
+  private static ServerWebExchange withUserId(ServerWebExchange exchange, UUID id) {
+    return exchange.mutate().request(r -> r.headers(h -> h.set(HEADER, id.toString()))).build();
+  }
+
+  // email claim uit een JWT (API) of uit de OAuth2 login (browser)
+  static String email(Principal principal) {
+    Map<String, Object> claims = null;
+    if (principal instanceof AbstractOAuth2TokenAuthenticationToken<?> token) {
+      claims = token.getTokenAttributes();
+    } else if (principal instanceof Authentication auth && auth.getPrincipal() instanceof OAuth2AuthenticatedPrincipal p) {
+      claims = p.getAttributes();
+    }
+    if (claims == null) return null;
+    if (Boolean.FALSE.equals(claims.get("email_verified")) || "false".equals(claims.get("email_verified"))) return null;
+    return (claims.get("email") instanceof String email) ? email : null;
+  }
+
+  // na de security filters, vóór de routing naar de services
+  @Override
+  public int getOrder() {
+    return 0;
+  }
+}
@@ -0,0 +1,81 @@
+package com.fittracker.gateway;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Email (uit het JWT) → user id via users-service GET /users/resolve, met een cache in de gateway.
+// Onbekende emails en fouten worden niet gecached: een nieuwe user is meteen vindbaar.
+// Enkel een gevonden id komt in de cache (geen AsyncCache: een future die met null afloopt, blijft even
+// in de cache staan en kan nog aan een volgende lookup gegeven worden).
+// Gelijktijdige lookups voor dezelfde email delen één request (inFlight).
+@Component
+public class UserIdResolver {
+
+  private final WebClient users;
+  private final Duration timeout;
+  private final Cache<String, UUID> cache;
+  private final Map<String, Mono<UUID>> inFlight = new ConcurrentHashMap<>();
+
+  public UserIdResolver(WebClient.Builder http, MeterRegistry registry,
+                        @Value("${gateway.users-uri:http://users-service:8081}") String usersUri,
+                        @Value("${gateway.user-id.timeout:2s}") Duration timeout,
+                        @Value("${gateway.user-id.cache.ttl:10m}") Duration ttl,
+                        @Value("${gateway.user-id.cache.max-size:100000}") long maxSize) {
+    this.users = http.baseUrl(usersUri).build();
+    this.timeout = timeout;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, cache, "gateway.user-id");
+  }
+
+  // Leeg als er (nog) geen user met deze email bestaat of users-service niet antwoordt
+  public Mono<UUID> resolve(String email) {
+    if (email == null || email.isBlank()) return Mono.empty();
+    String key = email.trim().toLowerCase(Locale.ROOT);
+    UUID cached = cache.getIfPresent(key);
+    if (cached != null) return Mono.just(cached);
+    return inFlight.computeIfAbsent(key, this::lookup);
+  }
+
+  // Eén request voor wie tegelijk dezelfde email opzoekt. De email wordt vrijgegeven vóór het antwoord
+  // verder gaat, zodat een lookup daarna de cache ziet of zelf opnieuw vraagt (zoals RequestCoalescingFilter).
+  private Mono<UUID> lookup(String key) {
+    return fetch(key)
+        .doOnSuccess(id -> {
+          if (id != null) cache.put(key, id);
+          inFlight.remove(key);
+        })
+        .doOnError(e -> inFlight.remove(key))
+        .cache();
+  }
+
+  private Mono<UUID> fetch(String email) {
+    return users.get()
+        .uri(b -> b.path("/users/resolve").queryParam("email", email).build())
+        .exchangeToMono(r -> {
+          // 404 = (nog) geen user met deze email
+          if (r.statusCode().value() == HttpStatus.NOT_FOUND.value()) return r.releaseBody().then(Mono.<Map<String, UUID>>empty());
+          if (r.statusCode().isError()) return r.createError();
+          return r.bodyToMono(new ParameterizedTypeReference<Map<String, UUID>>() { });
+        })
+        .timeout(timeout)
+        .mapNotNull(body -> body.get("id"));
+  }
+}
@@ -0,0 +1,131 @@
+package com.fittracker.gateway;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /api/dashboard: WireMock speelt users-, workouts- en progress-service.
+ */
+class DashboardTest {
+
+  static WireMockServer services = new WireMockServer(options().dynamicPort());
+
+  UUID userId = UUID.randomUUID();
+  Dashboard dashboard;
+
+  @BeforeAll
+  static void start() {
+    services.start();
+    // eerste request zet de HTTP client op (event loop, connecties, codecs): niet meetellen in de timeouts
+    WebClient.create("http://localhost:" + services.port()).get().uri("/__admin/mappings")
+        .retrieve().bodyToMono(com.fasterxml.jackson.databind.JsonNode.class).block();
+  }
+
+  @AfterAll
+  static void stop() { services.stop(); }
+
+  @BeforeEach
+  void setUp() {
+    services.resetAll();
+    String base = "http://localhost:" + services.port();
+    dashboard = new Dashboard(WebClient.builder(), base, base, base, Duration.ofMillis(1_000), 5);
+  }
+
+  @Test
+  void load_callsServicesConcurrently_andMergesResults() {
+    stubUser(0);
+    stubWorkouts(0);
+    stubProgress(0);
+    // elke request wacht tot alle drie vertrokken zijn: na elkaar zou de eerste nooit antwoorden (timeout)
+    AtomicInteger started = new AtomicInteger();
+    Sinks.Empty<Void> allStarted = Sinks.empty();
+    WebClient.Builder http = WebClient.builder().filter((request, next) -> {
+      if (started.incrementAndGet() == 3) allStarted.tryEmitEmpty();
+      return allStarted.asMono().then(next.exchange(request));
+    });
+    String base = "http://localhost:" + services.port();
+    dashboard = new Dashboard(http, base, base, base, Duration.ofMillis(1_000), 5);
+
+    var res = dashboard.load(userId).block();
+
+    assertEquals(3, started.get());
+    assertEquals("Alice", res.user().get("displayName").asText());
+    assertEquals("w1", res.recentWorkouts().get(0).get("id").asText());
+    assertEquals(7, res.progress().get("workoutsCompleted").asInt());
+    assertFalse(res.partial(), () -> "errors: " + res.errors());
+    services.verify(getRequestedFor(urlPathEqualTo("/progress")).withHeader(UserIdFilter.HEADER, equalTo(userId.toString())));
+  }
+
+  @Test
+  void load_slowOrFailingService_returnsPartialResultWithReason() {
+    stubUser(0);
+    stubWorkouts(3_000); // trager dan de timeout
+    services.stubFor(get(urlPathEqualTo("/progress")).willReturn(serverError()));
+
+    var res = dashboard.load(userId).block();
+
+    assertEquals("Alice", res.user().get("displayName").asText());
+    assertNull(res.recentWorkouts());
+    assertNull(res.progress());
+    assertTrue(res.partial());
+    assertEquals(Map.of("recentWorkouts", "timeout after 1000ms", "progress", "status 500"), res.errors());
+  }
+
+  @Test
+  void controller_userIdLookupFails_returnsPartialInsteadOf500() {
+    services.stubFor(get(urlPathEqualTo("/users/resolve")).willReturn(serviceUnavailable()));
+    String base = "http://localhost:" + services.port();
+    UserIdResolver resolver = new UserIdResolver(WebClient.builder(), new SimpleMeterRegistry(), base,
+        Duration.ofSeconds(2), Duration.ofMinutes(10), 100);
+    Jwt jwt = Jwt.withTokenValue("t").header("alg", "RS256").subject("alice").claim("email", "alice@example.com").build();
+    ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/dashboard")).mutate()
+        .principal(Mono.just(new JwtAuthenticationToken(jwt))).build();
+
+    var res = new DashboardController(dashboard, resolver).dashboard(exchange).block();
+
+    assertEquals(HttpStatus.OK, res.getStatusCode());
+    assertTrue(res.getBody().partial());
+    assertNull(res.getBody().user());
+    assertEquals("user id lookup failed: status 503", res.getBody().errors().get("user"));
+    assertEquals(Set.of("user", "recentWorkouts", "progress"), res.getBody().errors().keySet());
+  }
+
+  private void stubUser(int delay) {
+    services.stubFor(get(urlEqualTo("/users/" + userId)).willReturn(okJson("{\"id\":\"" + userId + "\",\"displayName\":\"Alice\"}")
+        .withFixedDelay(delay)));
+  }
+
+  private void stubWorkouts(int delay) {
+    services.stubFor(get(urlPathEqualTo("/workouts")).withQueryParam("userId", equalTo(userId.toString()))
+        .withQueryParam("limit", equalTo("5"))
+        .willReturn(okJson("{\"items\":[{\"id\":\"w1\"}],\"next\":null}").withFixedDelay(delay)));
+  }
+
+  private void stubProgress(int delay) {
+    services.stubFor(get(urlPathEqualTo("/progress")).withQueryParam("userId", equalTo(userId.toString()))
+        .willReturn(okJson("{\"workoutsCompleted\":7}").withFixedDelay(delay)));
+  }
+}
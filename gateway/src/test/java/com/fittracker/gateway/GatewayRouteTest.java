@@ -60,9 +60,14 @@ class GatewayRouteTest {
     reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedMethods[0]", () -> "GET");
     reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedMethods[1]", () -> "POST");
     reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedMethods[2]", () -> "PUT");
-    reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedMethods[3]", () -> "DELETE");
+    reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedMethods[3]", () -> "PATCH");
+    reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedMethods[4]", () -> "DELETE");
     reg.add("spring.cloud.gateway.globalcors.corsConfigurations.[/**].allowedHeaders[0]", () -> "*");
     reg.add("spring.cloud.gateway.default-filters[0]", () -> "DedupeResponseHeader=Access-Control-Allow-Credentials Access-Control-Allow-Origin");
+
+    // JWK set niet bij Google ophalen tijdens tests
+    reg.add("gateway.jwt.jwk-set-uri", () -> "http://localhost:" + backend.port() + "/jwks");
+    reg.add("gateway.jwt.jwk-set-file", () -> System.getProperty("java.io.tmpdir") + "/gateway-route-test-jwks.json");
   }
 
   @Autowired WebTestClient webClient;
@@ -132,6 +137,17 @@ class GatewayRouteTest {
         .expectHeader().valueEquals("Access-Control-Allow-Origin", "http://localhost:4200");
   }
 
+  @Test
+  void corsPreflightAllowsPatch() {
+    webClient.options()
+        .uri("http://localhost:" + port + "/api/workouts/w1")
+        .header("Origin", "http://localhost:4200")
+        .header("Access-Control-Request-Method", "PATCH")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueMatches("Access-Control-Allow-Methods", ".*PATCH.*");
+  }
+
   /**
    * Test-only security override: alles toestaan.
    * Dit voorkomt 401's tijdens integratietesten van de gateway routing.
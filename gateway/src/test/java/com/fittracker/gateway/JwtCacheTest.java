@@ -0,0 +1,158 @@
+package com.fittracker.gateway;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT validatie zonder Google: WireMock speelt de issuer en serveert een JWK set
+ * met een sleutel die in de test zelf gegenereerd wordt.
+ */
+class JwtCacheTest {
+
+  static final String ISSUER = "https://issuer.test";
+
+  static WireMockServer issuer = new WireMockServer(options().dynamicPort());
+  static RSAKey key;
+
+  @TempDir Path dir;
+
+  @BeforeAll
+  static void start() throws Exception {
+    issuer.start();
+    key = new RSAKeyGenerator(2048).keyID("k1").generate();
+  }
+
+  @AfterAll
+  static void stop() { issuer.stop(); }
+
+  @BeforeEach
+  void stubJwks() {
+    issuer.resetAll();
+    issuer.stubFor(get(urlEqualTo("/jwks")).willReturn(okJson(new JWKSet(key.toPublicJWK()).toString())));
+  }
+
+  @Test
+  void decode_validatesOnce_thenServesFromCache() throws Exception {
+    AtomicInteger decodes = new AtomicInteger();
+    ReactiveJwtDecoder nimbus = decoder(refresher());
+    ReactiveJwtDecoder counting = t -> { decodes.incrementAndGet(); return nimbus.decode(t); };
+    var cache = new CachingJwtDecoder(counting, 100, Duration.ofHours(1), Clock.systemUTC());
+
+    String token = token(Instant.now().plusSeconds(600));
+    Jwt first = cache.decode(token).block();
+    Jwt second = cache.decode(token).block();
+
+    assertEquals("user-1", first.getSubject());
+    assertSame(first, second);
+    assertEquals(1, decodes.get());
+  }
+
+  @Test
+  void decode_invalidToken_isNotCached() {
+    AtomicInteger decodes = new AtomicInteger();
+    ReactiveJwtDecoder failing = t -> { decodes.incrementAndGet(); return Mono.error(new IllegalStateException("bad")); };
+    var cache = new CachingJwtDecoder(failing, 100, Duration.ofHours(1), Clock.systemUTC());
+
+    assertThrows(IllegalStateException.class, () -> cache.decode("x").block());
+    assertThrows(IllegalStateException.class, () -> cache.decode("x").block());
+    assertEquals(2, decodes.get());
+  }
+
+  @Test
+  void decode_expiredCacheEntry_goesBackToDelegate() throws Exception {
+    AtomicInteger decodes = new AtomicInteger();
+    Instant exp = Instant.now().plusSeconds(600);
+    Jwt jwt = Jwt.withTokenValue("t").header("alg", "RS256").subject("u").expiresAt(exp).build();
+    ReactiveJwtDecoder delegate = t -> { decodes.incrementAndGet(); return Mono.just(jwt); };
+    // klok staat na de exp → entry mag niet meer gebruikt worden
+    var late = new CachingJwtDecoder(delegate, 100, Duration.ofHours(1), Clock.fixed(exp.plusSeconds(1), java.time.ZoneOffset.UTC));
+
+    late.decode("t").block();
+    late.decode("t").block();
+
+    assertEquals(2, decodes.get());
+    assertEquals(0, late.size());
+  }
+
+  @Test
+  void refresher_persistsLastKnownGood_andUsesItWhenIssuerIsDown() throws Exception {
+    JwkSetRefresher online = refresher();
+    online.refresh().block();
+    assertTrue(Files.exists(dir.resolve("jwks.json")));
+
+    // issuer weg: nieuwe gateway start met de bewaarde sleutels
+    issuer.resetAll();
+    issuer.stubFor(get(urlEqualTo("/jwks")).willReturn(serverError()));
+    JwkSetRefresher offline = refresher();
+    offline.load();
+    offline.refresh().block();
+
+    assertEquals(1, offline.current().size());
+    Jwt jwt = decoder(offline).decode(token(Instant.now().plusSeconds(600))).block();
+    assertEquals("user-1", jwt.getSubject());
+  }
+
+  @Test
+  void refresher_unknownKid_refetchesOnce() throws Exception {
+    JwkSetRefresher refresher = refresher();
+    // niets geladen → eerste token triggert een fetch, een tweede meteen daarna niet meer
+    decoder(refresher).decode(token(Instant.now().plusSeconds(600))).block();
+    decoder(refresher).decode(token(Instant.now().plusSeconds(601))).block();
+
+    issuer.verify(1, getRequestedFor(urlEqualTo("/jwks")));
+  }
+
+  private JwkSetRefresher refresher() {
+    return new JwkSetRefresher(WebClient.builder(), "http://localhost:" + issuer.port() + "/jwks",
+        dir.resolve("jwks.json"), Duration.ofHours(1), Duration.ofMinutes(1));
+  }
+
+  private static ReactiveJwtDecoder decoder(JwkSetRefresher refresher) {
+    NimbusReactiveJwtDecoder d = NimbusReactiveJwtDecoder.withJwkSource(refresher::keys).build();
+    d.setJwtValidator(JwtValidators.createDefaultWithIssuer(ISSUER));
+    return d;
+  }
+
+  private static String token(Instant exp) throws Exception {
+    var claims = new JWTClaimsSet.Builder()
+        .issuer(ISSUER)
+        .subject("user-1")
+        .claim("email", "alice@example.com")
+        .issueTime(new Date())
+        .expirationTime(Date.from(exp))
+        .build();
+    var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+    jwt.sign(new RSASSASigner(key));
+    return jwt.serialize();
+  }
+}
@@ -0,0 +1,114 @@
+package com.fittracker.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Single-flight: de chain speelt een trage service die na 200ms antwoordt.
+ */
+class RequestCoalescingFilterTest {
+
+  static final Route PROGRESS = Route.async().id("progress").uri("http://progress-service:8083")
+      .predicate(e -> true).build();
+
+  RequestCoalescingFilter filter;
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  AtomicInteger calls = new AtomicInteger();
+  MediaType contentType = MediaType.APPLICATION_JSON;
+
+  GatewayFilterChain backend = ex -> Mono.delay(Duration.ofMillis(200)).then(Mono.defer(() -> {
+    int n = calls.incrementAndGet();
+    ServerHttpResponse response = ex.getResponse();
+    response.setStatusCode(HttpStatus.OK);
+    response.getHeaders().setContentType(contentType);
+    byte[] body = ("{\"call\":" + n + "}").getBytes(StandardCharsets.UTF_8);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  }));
+
+  @BeforeEach
+  void setUp() {
+    filter = new RequestCoalescingFilter(registry, true, DataSize.ofMegabytes(1));
+  }
+
+  @Test
+  void concurrentIdenticalGets_shareOneUpstreamCall() {
+    List<ServerWebExchange> exchanges = IntStream.range(0, 20)
+        .mapToObj(i -> get("/api/progress/leaderboard?limit=10", "alice")).toList();
+
+    Flux.fromIterable(exchanges).flatMap(ex -> filter.filter(ex, backend)).then().block();
+
+    assertEquals(1, calls.get());
+    for (ServerWebExchange ex : exchanges) {
+      assertEquals("{\"call\":1}", response(ex).getBodyAsString().block());
+    }
+    assertEquals(19, registry.counter("gateway.coalesced").count());
+    assertEquals(0, filter.inFlight());
+  }
+
+  @Test
+  void differentPrincipalOrQuery_isNotShared() {
+    Flux.just(get("/api/progress/leaderboard", "alice"), get("/api/progress/leaderboard", "bob"),
+            get("/api/progress/leaderboard?limit=5", "alice"))
+        .flatMap(ex -> filter.filter(ex, backend)).then().block();
+
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void afterCompletion_nextRequestGoesUpstreamAgain() {
+    filter.filter(get("/api/progress/leaderboard", "alice"), backend).block();
+    ServerWebExchange later = get("/api/progress/leaderboard", "alice");
+    filter.filter(later, backend).block();
+
+    assertEquals(2, calls.get());
+    assertEquals("{\"call\":2}", response(later).getBodyAsString().block());
+  }
+
+  @Test
+  void streams_areNotShared_everyoneGetsOwnResponse() {
+    contentType = MediaType.APPLICATION_NDJSON;
+    List<ServerWebExchange> exchanges = List.of(get("/api/progress?stream=true", "alice"),
+        get("/api/progress?stream=true", "alice"));
+
+    Flux.fromIterable(exchanges).flatMap(ex -> filter.filter(ex, backend)).then().block();
+
+    assertEquals(2, calls.get());
+    for (ServerWebExchange ex : exchanges) {
+      assertTrue(response(ex).getBodyAsString().block().startsWith("{\"call\":"));
+    }
+  }
+
+  private static ServerWebExchange get(String uri, String principal) {
+    ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri).build()).mutate()
+        .principal(Mono.just(new TestingAuthenticationToken(principal, null))).build();
+    exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, PROGRESS);
+    return exchange;
+  }
+
+  private static MockServerHttpResponse response(ServerWebExchange exchange) {
+    return (MockServerHttpResponse) exchange.getResponse();
+  }
+}
@@ -0,0 +1,231 @@
+package com.fittracker.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gateway response cache: de chain speelt de service en schrijft het antwoord zoals NettyWriteResponseFilter.
+ */
+class ResponseCacheFilterTest {
+
+  static final Route USERS = Route.async().id("users").uri("http://users-service:8081")
+      .predicate(e -> true).metadata(Map.of(ResponseCacheFilter.TTL_METADATA, "30s")).build();
+  static final Route UNCACHED = Route.async().id("other").uri("http://other:8080").predicate(e -> true).build();
+
+  ResponseCacheFilter filter;
+  AtomicInteger calls = new AtomicInteger();
+  MediaType contentType = MediaType.APPLICATION_JSON;
+  HttpStatus status = HttpStatus.OK;
+
+  GatewayFilterChain backend = ex -> {
+    int n = calls.incrementAndGet();
+    ServerHttpResponse response = ex.getResponse();
+    response.setStatusCode(status);
+    response.getHeaders().setContentType(contentType);
+    response.getHeaders().set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "http://localhost:4200");
+    byte[] body = ("{\"call\":" + n + "}").getBytes(StandardCharsets.UTF_8);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  };
+
+  @BeforeEach
+  void setUp() {
+    filter = new ResponseCacheFilter(new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64),
+        Set.of("/api/users/lookup"));
+  }
+
+  @Test
+  void secondGet_servedFromCache_withSameStrongEtag() {
+    ServerWebExchange first = get("/api/users/1", "alice", USERS);
+    filter.filter(first, backend).block();
+    ServerWebExchange second = get("/api/users/1", "alice", USERS);
+    filter.filter(second, backend).block();
+
+    assertEquals(1, calls.get());
+    assertEquals("{\"call\":1}", response(second).getBodyAsString().block());
+    String etag = response(first).getHeaders().getETag();
+    assertNotNull(etag);
+    assertTrue(etag.startsWith("\"") && !etag.startsWith("W/"));
+    assertEquals(etag, response(second).getHeaders().getETag());
+    assertEquals(MediaType.APPLICATION_JSON, response(second).getHeaders().getContentType());
+  }
+
+  @Test
+  void ifNoneMatch_returns304_withoutCallingBackend() {
+    ServerWebExchange first = get("/api/users/1", "alice", USERS);
+    filter.filter(first, backend).block();
+    String etag = response(first).getHeaders().getETag();
+
+    ServerWebExchange conditional = exchange(MockServerHttpRequest.get("/api/users/1")
+        .header(HttpHeaders.IF_NONE_MATCH, etag).build(), "alice", USERS);
+    filter.filter(conditional, backend).block();
+
+    assertEquals(1, calls.get());
+    assertEquals(HttpStatus.NOT_MODIFIED, response(conditional).getStatusCode());
+    assertEquals(etag, response(conditional).getHeaders().getETag());
+    assertEquals("", response(conditional).getBodyAsString().defaultIfEmpty("").block());
+  }
+
+  @Test
+  void cachedPerPrincipalAndQuery() {
+    filter.filter(get("/api/users/1", "alice", USERS), backend).block();
+    filter.filter(get("/api/users/1", "bob", USERS), backend).block();
+    filter.filter(get("/api/users/1?x=1", "alice", USERS), backend).block();
+
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void successfulWrite_invalidatesPath_parentAndChildren_forAllPrincipals() {
+    filter.filter(get("/api/users/1", "alice", USERS), backend).block();
+    filter.filter(get("/api/users/1", "bob", USERS), backend).block();
+    filter.filter(get("/api/users", "alice", USERS), backend).block();
+    filter.filter(get("/api/users/2", "alice", USERS), backend).block();
+    assertEquals(4, filter.size());
+
+    GatewayFilterChain ok = ex -> { ex.getResponse().setStatusCode(HttpStatus.OK); return Mono.empty(); };
+    filter.filter(exchange(MockServerHttpRequest.put("/api/users/1").build(), "alice", USERS), ok).block();
+
+    filter.filter(get("/api/users/1", "bob", USERS), backend).block();
+    filter.filter(get("/api/users", "alice", USERS), backend).block();
+    filter.filter(get("/api/users/2", "alice", USERS), backend).block();
+    // /api/users/2 is geen ouder of kind van /api/users/1 en blijft bewaard
+    assertEquals(6, calls.get());
+  }
+
+  @Test
+  void readOnlyPost_keepsCache() {
+    filter.filter(get("/api/users", "alice", USERS), backend).block();
+    GatewayFilterChain ok = ex -> { ex.getResponse().setStatusCode(HttpStatus.OK); return Mono.empty(); };
+    filter.filter(exchange(MockServerHttpRequest.post("/api/users/lookup").build(), "alice", USERS), ok).block();
+
+    filter.filter(get("/api/users", "alice", USERS), backend).block();
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void writeDuringGet_onlyBlocksStoringOnSameRoute() {
+    // tijdens de GET komt er een write binnen: enkel op dezelfde route kan het antwoord al oud zijn
+    GatewayFilterChain writeOnProgress = ex -> { filter.invalidate("progress", "/api/progress/deltas"); return backend.filter(ex); };
+    filter.filter(get("/api/users/1", "alice", USERS), writeOnProgress).block();
+    assertEquals(1, filter.size());
+
+    GatewayFilterChain writeOnUsers = ex -> { filter.invalidate("users", "/api/users/2"); return backend.filter(ex); };
+    filter.filter(get("/api/users/2", "alice", USERS), writeOnUsers).block();
+    assertEquals(1, filter.size());
+  }
+
+  @Test
+  void failedWrite_keepsCache() {
+    filter.filter(get("/api/users/1", "alice", USERS), backend).block();
+    GatewayFilterChain bad = ex -> { ex.getResponse().setStatusCode(HttpStatus.BAD_REQUEST); return Mono.empty(); };
+    filter.filter(exchange(MockServerHttpRequest.put("/api/users/1").build(), "alice", USERS), bad).block();
+
+    filter.filter(get("/api/users/1", "alice", USERS), backend).block();
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void streamsErrorsAndUncachedRoutes_areNotStored() {
+    contentType = MediaType.APPLICATION_NDJSON;
+    ServerWebExchange stream = get("/api/users?stream=true", "alice", USERS);
+    filter.filter(stream, backend).block();
+    assertEquals("{\"call\":1}", response(stream).getBodyAsString().block());
+    assertNull(response(stream).getHeaders().getETag());
+
+    contentType = MediaType.APPLICATION_JSON;
+    status = HttpStatus.NOT_FOUND;
+    filter.filter(get("/api/users/9", "alice", USERS), backend).block();
+    status = HttpStatus.OK;
+    filter.filter(get("/api/other", "alice", UNCACHED), backend).block();
+
+    assertEquals(0, filter.size());
+  }
+
+  @Test
+  void bodyLargerThanMaxEntrySize_streamsThroughUnchanged_andIsNotStored() {
+    // drie buffers van 40KB zonder Content-Length: de limiet (64KB) wordt pas onderweg overschreden
+    GatewayFilterChain large = ex -> {
+      calls.incrementAndGet();
+      ServerHttpResponse response = ex.getResponse();
+      response.setStatusCode(HttpStatus.OK);
+      response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+      return response.writeWith(Flux.range(0, 3).map(i -> {
+        byte[] chunk = new byte[40 * 1024];
+        Arrays.fill(chunk, (byte) ('a' + i));
+        return response.bufferFactory().wrap(chunk);
+      }));
+    };
+    ServerWebExchange first = get("/api/users/export", "alice", USERS);
+    filter.filter(first, large).block();
+
+    String body = response(first).getBodyAsString().block();
+    assertEquals(3 * 40 * 1024, body.length());
+    assertEquals("a".repeat(40 * 1024) + "b".repeat(40 * 1024) + "c".repeat(40 * 1024), body);
+    assertNull(response(first).getHeaders().getETag());
+    assertEquals(0, filter.size());
+
+    filter.filter(get("/api/users/export", "alice", USERS), large).block();
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void noCacheRequest_bypassesLookup_andStoresFreshAnswer() {
+    filter.filter(get("/api/users/1", "alice", USERS), backend).block();
+    ServerWebExchange fresh = exchange(MockServerHttpRequest.get("/api/users/1")
+        .header(HttpHeaders.CACHE_CONTROL, "no-cache").build(), "alice", USERS);
+    filter.filter(fresh, backend).block();
+    assertEquals("{\"call\":2}", response(fresh).getBodyAsString().block());
+
+    ServerWebExchange cached = get("/api/users/1", "alice", USERS);
+    filter.filter(cached, backend).block();
+    assertEquals("{\"call\":2}", response(cached).getBodyAsString().block());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void related_matchesSamePathParentsAndChildren() {
+    assertTrue(ResponseCacheFilter.related("/api/workouts", "/api/workouts"));
+    assertTrue(ResponseCacheFilter.related("/api/workouts", "/api/workouts/1"));
+    assertTrue(ResponseCacheFilter.related("/api/workouts/1/x", "/api/workouts/1"));
+    assertFalse(ResponseCacheFilter.related("/api/workouts/10", "/api/workouts/1"));
+  }
+
+  private static ServerWebExchange get(String uri, String principal, Route route) {
+    return exchange(MockServerHttpRequest.get(uri).build(), principal, route);
+  }
+
+  private static ServerWebExchange exchange(MockServerHttpRequest request, String principal, Route route) {
+    ServerWebExchange exchange = MockServerWebExchange.from(request).mutate()
+        .principal(Mono.just(new TestingAuthenticationToken(principal, null))).build();
+    exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+    return exchange;
+  }
+
+  private static MockServerHttpResponse response(ServerWebExchange exchange) {
+    return (MockServerHttpResponse) exchange.getResponse();
+  }
+}
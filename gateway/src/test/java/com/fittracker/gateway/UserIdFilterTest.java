@@ -0,0 +1,133 @@
+package com.fittracker.gateway;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * X-User-Id header: WireMock speelt users-service (GET /users/resolve).
+ */
+class UserIdFilterTest {
+
+  static WireMockServer users = new WireMockServer(options().dynamicPort());
+
+  UUID aliceId = UUID.randomUUID();
+  UserIdResolver resolver;
+  UserIdFilter filter;
+  AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+  GatewayFilterChain chain = ex -> { forwarded.set(ex); return Mono.empty(); };
+
+  @BeforeAll
+  static void start() { users.start(); }
+
+  @AfterAll
+  static void stop() { users.stop(); }
+
+  @BeforeEach
+  void setUp() {
+    users.resetAll();
+    users.stubFor(get(urlPathEqualTo("/users/resolve")).withQueryParam("email", equalTo("alice@example.com"))
+        .willReturn(okJson("{\"id\":\"" + aliceId + "\"}")));
+    users.stubFor(get(urlPathEqualTo("/users/resolve")).withQueryParam("email", equalTo("new@example.com"))
+        .willReturn(aResponse().withStatus(404).withHeader("Content-Type", "application/problem+json")
+            .withBody("{\"status\":404}")));
+    resolver = new UserIdResolver(WebClient.builder(), new SimpleMeterRegistry(),
+        "http://localhost:" + users.port(), Duration.ofSeconds(2), Duration.ofMinutes(10), 100);
+    filter = new UserIdFilter(resolver);
+  }
+
+  @Test
+  void injectsResolvedUserId_andReplacesSpoofedHeader_cachedPerEmail() {
+    filter.filter(exchange("Alice@Example.com", true), chain).block();
+    assertEquals(aliceId.toString(), forwarded.get().getRequest().getHeaders().getFirst(UserIdFilter.HEADER));
+
+    filter.filter(exchange("alice@example.com", true), chain).block();
+    assertEquals(aliceId.toString(), forwarded.get().getRequest().getHeaders().getFirst(UserIdFilter.HEADER));
+
+    // tweede request uit de cache
+    users.verify(1, getRequestedFor(urlPathEqualTo("/users/resolve")));
+  }
+
+  @Test
+  void unknownUser_forwardsWithoutHeader_andIsNotCached() {
+    filter.filter(exchange("new@example.com", true), chain).block();
+    filter.filter(exchange("new@example.com", true), chain).block();
+
+    assertNull(forwarded.get().getRequest().getHeaders().getFirst(UserIdFilter.HEADER));
+    users.verify(2, getRequestedFor(urlPathEqualTo("/users/resolve")));
+  }
+
+  @Test
+  void unknownUser_becomesResolvableAsSoonAsItExists() {
+    assertNull(resolver.resolve("new@example.com").block());
+
+    UUID newId = UUID.randomUUID();
+    users.stubFor(get(urlPathEqualTo("/users/resolve")).withQueryParam("email", equalTo("new@example.com"))
+        .willReturn(okJson("{\"id\":\"" + newId + "\"}")));
+    assertEquals(newId, resolver.resolve("new@example.com").block());
+  }
+
+  @Test
+  void concurrentLookups_shareOneRequest() {
+    users.stubFor(get(urlPathEqualTo("/users/resolve")).withQueryParam("email", equalTo("alice@example.com"))
+        .willReturn(okJson("{\"id\":\"" + aliceId + "\"}").withFixedDelay(200)));
+
+    var ids = Mono.zip(resolver.resolve("alice@example.com"), resolver.resolve("Alice@example.com")).block();
+
+    assertEquals(aliceId, ids.getT1());
+    assertEquals(aliceId, ids.getT2());
+    users.verify(1, getRequestedFor(urlPathEqualTo("/users/resolve")));
+  }
+
+  @Test
+  void anonymousOrUnverified_onlyStripsHeader() {
+    filter.filter(MockServerWebExchange.from(request()), chain).block();
+    assertNull(forwarded.get().getRequest().getHeaders().getFirst(UserIdFilter.HEADER));
+
+    filter.filter(exchange("alice@example.com", false), chain).block();
+    assertNull(forwarded.get().getRequest().getHeaders().getFirst(UserIdFilter.HEADER));
+
+    users.verify(0, getRequestedFor(urlPathEqualTo("/users/resolve")));
+  }
+
+  @Test
+  void usersServiceDown_forwardsWithoutHeader() {
+    users.resetAll();
+    users.stubFor(get(urlPathEqualTo("/users/resolve")).willReturn(serverError()));
+
+    filter.filter(exchange("alice@example.com", true), chain).block();
+
+    assertNotNull(forwarded.get());
+    assertNull(forwarded.get().getRequest().getHeaders().getFirst(UserIdFilter.HEADER));
+  }
+
+  private static MockServerHttpRequest request() {
+    // client probeert zelf een user id mee te sturen
+    return MockServerHttpRequest.get("/api/progress").header(UserIdFilter.HEADER, UUID.randomUUID().toString()).build();
+  }
+
+  private static ServerWebExchange exchange(String email, boolean verified) {
+    Jwt jwt = Jwt.withTokenValue("t").header("alg", "RS256")
+        .claim("email", email).claim("email_verified", verified).subject("sub").build();
+    return MockServerWebExchange.from(request()).mutate().principal(Mono.just(new JwtAuthenticationToken(jwt))).build();
+  }
+}
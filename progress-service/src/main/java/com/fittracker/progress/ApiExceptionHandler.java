@@ -0,0 +1,17 @@
+package com.fittracker.progress;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Vertaalt de exceptions uit de service laag naar nette HTTP statuscodes i.p.v. 500
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+  // ongeldige input (userId ontbreekt, granularity, datumbereik, ...) → 400
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ProblemDetail badRequest(IllegalArgumentException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+  }
+}
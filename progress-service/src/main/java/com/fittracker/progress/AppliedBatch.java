@@ -0,0 +1,30 @@
+package com.fittracker.progress;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Batches van de workouts change stream die al toegepast zijn.
+// Zo telt een opnieuw verstuurde batch (bv. na een crash van workouts-service) niet dubbel.
+// Oude rijen worden opgeruimd door AppliedBatchPruner (index op applied_at).
+@Entity
+@Table(name = "applied_batches",
+    indexes = @Index(name = "applied_batches_applied_at_idx", columnList = "appliedAt"))
+public class AppliedBatch {
+
+  @Id
+  private String batchId;
+
+  @Column(nullable = false)
+  private Instant appliedAt;
+
+  // Lege constructor verplicht voor JPA
+  public AppliedBatch() { }
+
+  public AppliedBatch(String batchId, Instant appliedAt) {
+    this.batchId = batchId;
+    this.appliedAt = appliedAt;
+  }
+
+  public String getBatchId() { return batchId; }
+  public Instant getAppliedAt() { return appliedAt; }
+}
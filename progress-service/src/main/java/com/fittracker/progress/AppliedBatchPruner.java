@@ -0,0 +1,78 @@
+package com.fittracker.progress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Ruimt oude rijen in applied_batches op; applyDeltas schrijft er één per flush van de change stream.
+// Een batch wordt enkel opnieuw verstuurd zolang workouts-service hem nog als pending heeft of het
+// resume token nog in de oplog zit. De retention moet daarom ruim langer zijn dan dat resume venster
+// (oplog window van de replica set); wat ouder is, kan niet meer dubbel binnenkomen.
+@Component
+public class AppliedBatchPruner implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(AppliedBatchPruner.class);
+
+  private final AppliedBatchRepository batches;
+  private final Duration retention;
+  private final Duration interval;
+
+  private ScheduledExecutorService scheduler;
+  private volatile boolean running;
+
+  public AppliedBatchPruner(AppliedBatchRepository batches,
+                            @Value("${progress.applied-batches.retention:7d}") Duration retention,
+                            @Value("${progress.applied-batches.prune-interval:1h}") Duration interval) {
+    this.batches = batches;
+    this.retention = retention;
+    this.interval = interval;
+  }
+
+  // Rijen ouder dan de retention verwijderen; geeft het aantal terug
+  int prune(Instant now) {
+    Instant before = now.minus(retention);
+    int deleted = batches.deleteAppliedBefore(before);
+    if (deleted > 0) log.info("pruned {} applied batches older than {}", deleted, before);
+    return deleted;
+  }
+
+  private void pruneQuietly() {
+    try {
+      prune(Instant.now());
+    } catch (RuntimeException e) {
+      log.warn("pruning applied batches failed, retrying later: {}", e.getMessage());
+    }
+  }
+
+  @Override
+  public void start() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "applied-batches-pruner");
+      t.setDaemon(true);
+      return t;
+    });
+    long ms = Math.max(1, interval.toMillis());
+    scheduler.scheduleWithFixedDelay(this::pruneQuietly, ms, ms, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    scheduler.shutdownNow();
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
@@ -0,0 +1,18 @@
+package com.fittracker.progress;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface AppliedBatchRepository extends JpaRepository<AppliedBatch, String> {
+
+  // Eén DELETE statement i.p.v. alle entities eerst in te laden
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM AppliedBatch b WHERE b.appliedAt < :before")
+  int deleteAppliedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,126 @@
+package com.fittracker.progress;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// Best lifts per (user, oefening) in de tabel best_lifts i.p.v. één JSON tekstveld op progress.
+// Een merge past per oefening GREATEST(oud, nieuw) toe in één statement, dus twee clients die
+// verschillende oefeningen doorsturen overschrijven elkaar niet meer.
+// De index (exercise, weight DESC) maakt "top users voor oefening X" een index scan.
+// Tabel en index worden aangemaakt door ProgressSchema.
+@Component
+public class BestLifts {
+
+  // Eén resultaat van de top-lijst per oefening
+  public record Top(UUID userId, double weight, Instant updatedAt) { }
+
+  // Gesorteerd op (user_id, exercise) zodat twee gelijktijdige merges elkaar niet kunnen deadlocken
+  static final String MERGE = """
+      INSERT INTO best_lifts (user_id, exercise, weight, updated_at)
+      SELECT t.user_id, t.exercise, t.weight, now()
+      FROM unnest(?::uuid[], ?::text[], ?::float8[]) AS t(user_id, exercise, weight)
+      ORDER BY t.user_id, t.exercise
+      ON CONFLICT (user_id, exercise) DO UPDATE
+        SET weight = GREATEST(best_lifts.weight, EXCLUDED.weight),
+            updated_at = CASE WHEN EXCLUDED.weight > best_lifts.weight THEN now() ELSE best_lifts.updated_at END
+      """;
+
+  private final JdbcTemplate jdbc;
+
+  public BestLifts(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  public Map<String, Double> get(UUID userId) {
+    Map<String, Double> lifts = new LinkedHashMap<>();
+    jdbc.query("SELECT exercise, weight FROM best_lifts WHERE user_id = ? ORDER BY exercise",
+        rs -> { lifts.put(rs.getString(1), rs.getDouble(2)); }, userId);
+    return lifts;
+  }
+
+  // Voor een lijst van users in één query
+  public Map<UUID, Map<String, Double>> get(Collection<UUID> userIds) {
+    Map<UUID, Map<String, Double>> res = new HashMap<>();
+    if (userIds.isEmpty()) return res;
+    jdbc.query(con -> {
+          var ps = con.prepareStatement(
+              "SELECT user_id, exercise, weight FROM best_lifts WHERE user_id = ANY(?) ORDER BY user_id, exercise");
+          ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+          return ps;
+        },
+        rs -> {
+          res.computeIfAbsent(rs.getObject(1, UUID.class), k -> new LinkedHashMap<>())
+              .put(rs.getString(2), rs.getDouble(3));
+        });
+    return res;
+  }
+
+  // Per oefening het maximum bewaren; null/lege namen en negatieve gewichten worden genegeerd
+  public void merge(UUID userId, Map<String, Double> lifts) {
+    merge(Map.of(userId, lifts));
+  }
+
+  // Lifts van veel users in één statement (bv. een batch PR's uit workouts-service).
+  // Namen worden genormaliseerd; vallen twee namen samen ("Bench" en "bench"), dan telt het maximum.
+  public void merge(Map<UUID, Map<String, Double>> liftsPerUser) {
+    Map<UUID, Map<String, Double>> normalized = new TreeMap<>();
+    liftsPerUser.forEach((userId, lifts) -> {
+      if (userId == null || lifts == null) return;
+      lifts.forEach((exercise, weight) -> {
+        if (exercise == null || exercise.isBlank() || weight == null || weight < 0) return;
+        normalized.computeIfAbsent(userId, k -> new TreeMap<>()).merge(exercise(exercise), weight, Math::max);
+      });
+    });
+    List<UUID> users = new ArrayList<>();
+    List<String> exercises = new ArrayList<>();
+    List<Double> weights = new ArrayList<>();
+    normalized.forEach((userId, lifts) -> lifts.forEach((exercise, weight) -> {
+      users.add(userId);
+      exercises.add(exercise);
+      weights.add(weight);
+    }));
+    if (users.isEmpty()) return;
+
+    jdbc.update(MERGE, ps -> {
+      Connection c = ps.getConnection();
+      Array a1 = c.createArrayOf("uuid", users.toArray());
+      Array a2 = c.createArrayOf("text", exercises.toArray());
+      Array a3 = c.createArrayOf("float8", weights.toArray());
+      ps.setArray(1, a1);
+      ps.setArray(2, a2);
+      ps.setArray(3, a3);
+    });
+  }
+
+  // Zwaarste lifts voor één oefening (gebruikt de index op (exercise, weight DESC))
+  public List<Top> top(String exercise, int limit) {
+    return jdbc.query(
+        "SELECT user_id, weight, updated_at FROM best_lifts WHERE exercise = ? ORDER BY weight DESC LIMIT ?",
+        (rs, i) -> new Top(rs.getObject(1, UUID.class), rs.getDouble(2), toInstant(rs.getTimestamp(3))),
+        exercise(exercise), limit);
+  }
+
+  // Zelfde normalisatie als workouts-service (PersonalRecords.key): "Bench Press" en "bench press" zijn
+  // dezelfde oefening, '.' en '$' worden '_'. ProgressSchema zet bestaande rijen op dezelfde manier om.
+  static String exercise(String name) {
+    return name.trim().toLowerCase(Locale.ROOT).replace('.', '_').replace('$', '_');
+  }
+
+  private static Instant toInstant(Timestamp ts) {
+    return ts == null ? null : ts.toInstant();
+  }
+}
@@ -0,0 +1,177 @@
+package com.fittracker.progress;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory leaderboard op workoutsCompleted, zodat top-N en "mijn rank" de database niet raken.
+//
+// - ordered: skip list gesorteerd op (score desc, userId) → top-N = de eerste N elementen
+// - tree: Fenwick tree met het aantal users per score → rank = 1 + aantal users met een hogere score,
+//   in O(log maxScore) i.p.v. de skip list af te lopen
+//
+// Wordt bij het opstarten (vóór de webserver) gevuld uit Postgres en daarna bijgewerkt door
+// ProgressService na elke commit. Gelijke scores krijgen dezelfde rank (1, 2, 2, 4).
+@Component
+public class Leaderboard implements SmartLifecycle {
+
+  public record Entry(int rank, UUID userId, int workoutsCompleted) { }
+
+  private record Key(int score, UUID userId) { }
+
+  private static final Comparator<Key> ORDER =
+      Comparator.comparingInt(Key::score).reversed().thenComparing(Key::userId);
+
+  private final JdbcTemplate jdbc;
+  private final ConcurrentSkipListSet<Key> ordered = new ConcurrentSkipListSet<>(ORDER);
+  private final Map<UUID, Integer> scores = new ConcurrentHashMap<>();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Fenwick tree: index = score + 1, groeit mee met de hoogste score
+  private int[] tree = new int[1024];
+  private volatile boolean running;
+
+  public Leaderboard(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  // Workouts van een user verhogen/verlagen (increments, change stream deltas)
+  public void add(UUID userId, int delta) {
+    lock.writeLock().lock();
+    try {
+      put(userId, Math.max(0, scores.getOrDefault(userId, 0) + delta));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Absolute waarde zetten (upsert)
+  public void set(UUID userId, int workoutsCompleted) {
+    lock.writeLock().lock();
+    try {
+      put(userId, Math.max(0, workoutsCompleted));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Globale top N
+  public List<Entry> top(int limit) {
+    lock.readLock().lock();
+    try {
+      List<Entry> res = new ArrayList<>(Math.min(limit, scores.size()));
+      for (Key k : ordered) {
+        if (res.size() >= limit) break;
+        res.add(new Entry(rankOf(k.score()), k.userId(), k.score()));
+      }
+      return res;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Rank van één user over alle users; zonder progress telt de user als 0 workouts
+  public Entry rank(UUID userId) {
+    lock.readLock().lock();
+    try {
+      int score = scores.getOrDefault(userId, 0);
+      return new Entry(rankOf(score), userId, score);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Leaderboard binnen een cohort (expliciete lijst users), O(k log k) voor k users
+  public List<Entry> cohort(Collection<UUID> userIds, int limit) {
+    List<Key> keys = new ArrayList<>();
+    for (UUID id : new LinkedHashSet<>(userIds)) keys.add(new Key(scores.getOrDefault(id, 0), id));
+    keys.sort(ORDER);
+
+    List<Entry> res = new ArrayList<>(Math.min(limit, keys.size()));
+    int rank = 0;
+    for (int i = 0; i < keys.size() && res.size() < limit; i++) {
+      if (i == 0 || keys.get(i).score() != keys.get(i - 1).score()) rank = i + 1;
+      res.add(new Entry(rank, keys.get(i).userId(), keys.get(i).score()));
+    }
+    return res;
+  }
+
+  public int size() {
+    return scores.size();
+  }
+
+  private void put(UUID userId, int score) {
+    ensureCapacity(score);
+    Integer old = scores.put(userId, score);
+    if (old != null) {
+      ordered.remove(new Key(old, userId));
+      fenwick(old, -1);
+    }
+    ordered.add(new Key(score, userId));
+    fenwick(score, 1);
+  }
+
+  // 1 + aantal users met een strikt hogere score
+  private int rankOf(int score) {
+    return scores.size() - atMost(score) + 1;
+  }
+
+  private void fenwick(int score, int delta) {
+    for (int i = score + 1; i < tree.length; i += i & -i) tree[i] += delta;
+  }
+
+  private int atMost(int score) {
+    int sum = 0;
+    for (int i = Math.min(score + 1, tree.length - 1); i > 0; i -= i & -i) sum += tree[i];
+    return sum;
+  }
+
+  // Boom verdubbelen en opnieuw opbouwen als een score buiten de huidige grootte valt (zeldzaam)
+  private void ensureCapacity(int score) {
+    if (score + 1 < tree.length) return;
+    int size = tree.length;
+    while (score + 1 >= size) size *= 2;
+    tree = new int[size];
+    for (int s : scores.values()) fenwick(s, 1);
+  }
+
+  // Vullen vóór de webserver start (lagere phase), zodat er nooit een half leaderboard getoond wordt
+  @Override
+  public void start() {
+    lock.writeLock().lock();
+    try {
+      jdbc.query("SELECT user_id, workouts_completed FROM progress", rs -> {
+        put(rs.getObject(1, UUID.class), Math.max(0, rs.getInt(2)));
+      });
+    } finally {
+      lock.writeLock().unlock();
+    }
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return 0;
+  }
+}
@@ -1,13 +1,22 @@
 package com.fittracker.progress;
 
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.*;
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
 @Table(name = "progress")
 public class Progress {
 
+  private static final ObjectMapper JSON = new ObjectMapper();
+
   // Primary key (uniek ID voor progress-record)
   @Id
   private UUID id;
@@ -20,10 +29,10 @@ public class Progress {
   @Column(nullable = false)
   private int workoutsCompleted;
 
-  // Best lifts in JSON-vorm, opgeslagen als plain tekst
-  // -> vermijdt JSONB issues tussen DB en JPA
-  @Column(nullable = false, columnDefinition = "TEXT")
-  private String bestLifts;
+  // Best lifts per oefening (kg). Staan in de aparte tabel best_lifts (zie BestLifts),
+  // de service vult dit veld bij het lezen.
+  @Transient
+  private Map<String, Double> bestLifts = new LinkedHashMap<>();
 
   // Laatste update tijdstip
   @Column(nullable = false)
@@ -33,7 +42,7 @@ public class Progress {
   public Progress() { }
 
   // Convenience constructor
-  public Progress(UUID id, UUID userId, int workoutsCompleted, String bestLifts, Instant updatedAt) {
+  public Progress(UUID id, UUID userId, int workoutsCompleted, Map<String, Double> bestLifts, Instant updatedAt) {
     this.id = id;
     this.userId = userId;
     this.workoutsCompleted = workoutsCompleted;
@@ -44,8 +53,7 @@ public class Progress {
   // Voor het saven van een nieuw record → vul defaults in
   @PrePersist
   public void prePersist() {
-    if (this.id == null) this.id = UUID.randomUUID(); // nieuw UUID
-    if (this.bestLifts == null) this.bestLifts = "{}"; // lege JSON
+    if (this.id == null) this.id = UuidV7.next(); // nieuw tijdsgeordend UUID
     if (this.updatedAt == null) this.updatedAt = Instant.now(); // timestamp
   }
 
@@ -65,8 +73,19 @@ public class Progress {
   public int getWorkoutsCompleted() { return workoutsCompleted; }
   public void setWorkoutsCompleted(int workoutsCompleted) { this.workoutsCompleted = workoutsCompleted; }
 
-  public String getBestLifts() { return bestLifts; }
-  public void setBestLifts(String bestLifts) { this.bestLifts = bestLifts; }
+  public Map<String, Double> getBestLifts() { return bestLifts; }
+  public void setBestLifts(Map<String, Double> bestLifts) { this.bestLifts = bestLifts; }
+
+  // Oudere clients (seeders, postman) sturen bestLifts als JSON string: "{\"bench\": 80}"
+  @JsonSetter("bestLifts")
+  void setBestLiftsJson(JsonNode node) throws JsonProcessingException {
+    if (node == null || node.isNull()) {
+      this.bestLifts = null;
+    } else {
+      JsonNode lifts = node.isTextual() ? JSON.readTree(node.asText()) : node;
+      this.bestLifts = JSON.convertValue(lifts, new TypeReference<LinkedHashMap<String, Double>>() {});
+    }
+  }
 
   public Instant getUpdatedAt() { return updatedAt; }
   public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
@@ -1,9 +1,14 @@
 package com.fittracker.progress;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -12,31 +17,103 @@ public class ProgressController {
 
   // Service laag die alle businesslogica bevat
   private final ProgressService service;
+  private final ProgressExporter exporter;
 
   // Constructor injection (aanbevolen manier in Spring)
-  public ProgressController(ProgressService service) {
+  public ProgressController(ProgressService service, ProgressExporter exporter) {
     this.service = service;
+    this.exporter = exporter;
   }
 
   // Als userId meegegeven wordt → enkel die progress teruggeven
-  // Anders → lijst van alle progress-records
+  // Zonder userId via de gateway → progress van de ingelogde user (X-User-Id)
+  // Anders → een pagina progress-records; volgende pagina met ?cursor=<next uit het vorige antwoord>
   @GetMapping
   public ResponseEntity<?> get(
-      @RequestParam(required = false) UUID userId
+      @RequestParam(required = false) UUID userId,
+      @RequestHeader(value = "X-User-Id", required = false) UUID currentUser,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor
   ) {
+    if (userId == null) userId = currentUser;
     if (userId == null) {
-      List<Progress> all = service.getAll();
-      return ResponseEntity.ok(all);
+      return ResponseEntity.ok(service.page(limit, cursor));
     }
     return ResponseEntity.ok(service.getByUser(userId));
   }
 
+  // Alle progress-records streamen als NDJSON (constant geheugen, ook voor heel veel users)
+  @GetMapping(params = "stream=true", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> stream() {
+    StreamingResponseBody body = exporter::export;
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+  }
+
+  // Leaderboard op workoutsCompleted (uit het geheugen, raakt de database niet)
+  // - zonder userIds: globale top N
+  // - met userIds=a,b,c: ranking binnen die cohort (bv. vrienden, een groepsles)
+  @GetMapping("/leaderboard")
+  public ResponseEntity<List<Leaderboard.Entry>> leaderboard(
+      @RequestParam(required = false) List<UUID> userIds,
+      @RequestParam(defaultValue = "10") int limit
+  ) {
+    return ResponseEntity.ok(service.leaderboard(userIds, Math.min(Math.max(limit, 1), 100)));
+  }
+
+  // "Mijn rank" over alle users
+  @GetMapping("/leaderboard/{userId}")
+  public ResponseEntity<Leaderboard.Entry> rank(@PathVariable UUID userId) {
+    return ResponseEntity.ok(service.rank(userId));
+  }
+
+  // Zwaarste lifts voor één oefening, bv. GET /progress/best-lifts/top?exercise=bench&limit=10
+  @GetMapping("/best-lifts/top")
+  public ResponseEntity<List<BestLifts.Top>> topLifts(
+      @RequestParam String exercise,
+      @RequestParam(defaultValue = "10") int limit
+  ) {
+    return ResponseEntity.ok(service.topLifts(exercise, Math.min(Math.max(limit, 1), 100)));
+  }
+
+  // Workouts per dag of ISO-week, bv. GET /progress/{userId}/rollups?granularity=week&from=2025-01-01&to=2025-12-31
+  // Enkel buckets met workouts komen terug
+  @GetMapping("/{userId}/rollups")
+  public ResponseEntity<ProgressRollups.Series> rollups(
+      @PathVariable UUID userId,
+      @RequestParam(defaultValue = "week") String granularity,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+  ) {
+    return ResponseEntity.ok(service.rollups(userId, ProgressRollups.Granularity.parse(granularity), from, to));
+  }
+
   // Verhoogt workoutsCompleted voor deze user met +1
   @PutMapping("/{userId}/increment")
   public ResponseEntity<Progress> increment(@PathVariable UUID userId) {
     return ResponseEntity.ok(service.incrementWorkouts(userId));
   }
 
+  // Workout-tellers bijwerken vanuit de workouts change stream.
+  // Body: {"batchId": "...", "deltas": {"<userId>": 3, "<userId>": -1}}
+  @PostMapping("/deltas")
+  public ResponseEntity<Map<String, Boolean>> applyDeltas(@RequestBody DeltaBatch body) {
+    return ResponseEntity.ok(Map.of("applied", service.applyDeltas(body.batchId(), body.deltas())));
+  }
+
+  public record DeltaBatch(String batchId, Map<UUID, Integer> deltas) { }
+
+  // Best lifts samenvoegen (per oefening het maximum), bv. vanuit workouts-service bij een nieuw PR
+  @PutMapping("/{userId}/best-lifts")
+  public ResponseEntity<Progress> mergeBestLifts(@PathVariable UUID userId, @RequestBody Map<String, Double> lifts) {
+    return ResponseEntity.ok(service.mergeBestLifts(userId, lifts));
+  }
+
+  // Best lifts van veel users in één request, body: {"<userId>": {"bench": 100.0}, ...}
+  @PostMapping("/best-lifts")
+  public ResponseEntity<Map<String, Integer>> mergeBestLifts(@RequestBody Map<UUID, Map<String, Double>> liftsPerUser) {
+    return ResponseEntity.ok(Map.of("users", service.mergeBestLifts(liftsPerUser)));
+  }
+
   // Upsert → maakt nieuw record als het niet bestaat,
   // update bestaand record als het er al is
   @PutMapping
@@ -0,0 +1,96 @@
+package com.fittracker.progress;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Streamt alle progress-records als NDJSON met een JDBC cursor (fetch size binnen een read-only transactie),
+// dus constant geheugen. Best lifts komen mee uit dezelfde query (één JSON object per user).
+@Component
+public class ProgressExporter {
+
+  private static final byte[] NEWLINE = {'\n'};
+  private static final TypeReference<LinkedHashMap<String, Double>> LIFTS = new TypeReference<>() {};
+
+  static final String QUERY = """
+      SELECT p.id, p.user_id, p.workouts_completed, p.updated_at, l.lifts
+      FROM progress p
+      LEFT JOIN LATERAL (
+        SELECT jsonb_object_agg(b.exercise, b.weight)::text AS lifts FROM best_lifts b WHERE b.user_id = p.user_id
+      ) l ON true
+      ORDER BY p.id
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final ObjectMapper mapper;
+  private final ObjectWriter writer;
+  private final ProgressWriteBehind writeBehind;
+  private final int fetchSize;
+
+  public ProgressExporter(JdbcTemplate jdbc, PlatformTransactionManager txManager, ObjectMapper mapper,
+                          ProgressWriteBehind writeBehind,
+                          @Value("${progress.export.fetch-size:500}") int fetchSize) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(txManager);
+    this.tx.setReadOnly(true);
+    this.mapper = mapper;
+    // niet sluiten of flushen na elk record: dat bepalen we zelf per blok
+    this.writer = mapper.writerFor(Progress.class)
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.writeBehind = writeBehind;
+    this.fetchSize = fetchSize;
+  }
+
+  // Schrijft alle records naar out, in dezelfde volgorde als GET /progress
+  public long export(OutputStream out) throws IOException {
+    OutputStream buf = new BufferedOutputStream(out, 64 * 1024);
+    long[] count = {0};
+    try {
+      tx.executeWithoutResult(s -> jdbc.query(con -> {
+        var ps = con.prepareStatement(QUERY);
+        ps.setFetchSize(fetchSize);
+        return ps;
+      }, rs -> {
+        UUID userId = rs.getObject(2, UUID.class);
+        Timestamp updated = rs.getTimestamp(4);
+        String lifts = rs.getString(5);
+        try {
+          Progress p = new Progress(
+              rs.getObject(1, UUID.class),
+              userId,
+              // nog niet weggeschreven increments (write-behind) meetellen, zoals bij GET /progress?userId=
+              rs.getInt(3) + writeBehind.pending(userId),
+              lifts == null ? new LinkedHashMap<>() : mapper.readValue(lifts, LIFTS),
+              updated == null ? null : updated.toInstant());
+          writer.writeValue(buf, p);
+          buf.write(NEWLINE);
+          if (++count[0] % fetchSize == 0) buf.flush();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    buf.flush();
+    return count[0];
+  }
+}
@@ -0,0 +1,23 @@
+package com.fittracker.progress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+// Eén pagina progress-records + token voor de volgende pagina (null = laatste pagina)
+// Keyset op id: het token is het id van het laatste record, in base64url zodat clients het niet hoeven te begrijpen
+public record ProgressPage(List<Progress> items, String next) {
+
+  static String cursor(UUID lastId) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  static UUID after(String token) {
+    try {
+      return UUID.fromString(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("invalid cursor", e);
+    }
+  }
+}
@@ -1,10 +1,33 @@
 package com.fittracker.progress;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface ProgressRepository extends JpaRepository<Progress, UUID> {
   Optional<Progress> findByUserId(UUID userId);
+
+  // Keyset paginatie op de primary key: elke pagina is een index range scan, ook ver in de lijst
+  List<Progress> findAllByOrderByIdAsc(Limit limit);
+
+  List<Progress> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+
+  // Atomische increment in één statement: maakt het record aan of telt delta op bij de bestaande waarde.
+  // Geen lost updates bij gelijktijdige increments en geen unique-conflict bij de eerste workout van een user.
+  // De teller zakt nooit onder 0 (deltas van de change stream kunnen negatief zijn).
+  // id wordt enkel gebruikt als er nog geen record bestaat.
+  @Query(value = """
+      INSERT INTO progress (id, user_id, workouts_completed, updated_at)
+      VALUES (:id, :userId, GREATEST(:delta, 0), now())
+      ON CONFLICT (user_id) DO UPDATE
+        SET workouts_completed = GREATEST(progress.workouts_completed + :delta, 0),
+            updated_at = now()
+      RETURNING *
+      """, nativeQuery = true)
+  Progress incrementWorkouts(@Param("id") UUID id, @Param("userId") UUID userId, @Param("delta") int delta);
 }
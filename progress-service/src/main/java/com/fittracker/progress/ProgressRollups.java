@@ -0,0 +1,99 @@
+package com.fittracker.progress;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// Aantal workouts per user per dag en per ISO-week (maandag, UTC) in progress_rollups.
+// Elke write (increment, deltas, upsert) telt zijn delta op bij de bucket van "nu", zodat een
+// trendgrafiek O(buckets) rijen leest i.p.v. alle workouts opnieuw af te lopen.
+// Tabel wordt aangemaakt door ProgressSchema.
+@Component
+public class ProgressRollups {
+
+  public enum Granularity {
+    DAY, WEEK;
+
+    // Begin van de bucket waarin deze dag valt
+    public LocalDate bucket(LocalDate day) {
+      return this == DAY ? day : day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public static Granularity parse(String s) {
+      try {
+        return valueOf(s.trim().toUpperCase(Locale.ROOT));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("granularity must be day or week");
+      }
+    }
+  }
+
+  // Compact antwoord: enkel buckets met workouts, chronologisch
+  public record Bucket(LocalDate start, int workouts) { }
+
+  public record Series(Granularity granularity, LocalDate from, LocalDate to, List<Bucket> buckets) { }
+
+  // Dag- en weekbucket voor een lijst users in één statement; een bucket zakt nooit onder 0.
+  // De delta is één parameter voor alle users: EXCLUDED.workouts bevat al de afgekapte waarde.
+  static final String RECORD = """
+      INSERT INTO progress_rollups (user_id, granularity, bucket_start, workouts)
+      SELECT u.user_id, g.granularity, g.bucket_start, GREATEST(?, 0)
+      FROM unnest(?::uuid[]) AS u(user_id)
+      CROSS JOIN (VALUES ('DAY', ?::date), ('WEEK', ?::date)) AS g(granularity, bucket_start)
+      ORDER BY 1, 2
+      ON CONFLICT (user_id, granularity, bucket_start) DO UPDATE
+        SET workouts = GREATEST(progress_rollups.workouts + ?, 0)
+      """;
+
+  private final JdbcTemplate jdbc;
+
+  public ProgressRollups(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  // Deltas per user optellen bij de dag/week van dit tijdstip.
+  // Eén statement per verschillende delta; increments zijn bijna altijd +1, dus meestal één statement.
+  public void record(Map<UUID, Integer> deltas, Instant at) {
+    Map<Integer, List<UUID>> byDelta = new TreeMap<>();
+    deltas.forEach((userId, delta) -> {
+      if (userId != null && delta != null && delta != 0) byDelta.computeIfAbsent(delta, k -> new ArrayList<>()).add(userId);
+    });
+    LocalDate day = at.atOffset(ZoneOffset.UTC).toLocalDate();
+    byDelta.forEach((delta, users) -> write(users, delta, day));
+  }
+
+  private void write(List<UUID> users, int delta, LocalDate day) {
+    UUID[] ids = users.toArray(UUID[]::new);
+    jdbc.update(RECORD, ps -> {
+      ps.setInt(1, delta);
+      ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids));
+      ps.setDate(3, Date.valueOf(Granularity.DAY.bucket(day)));
+      ps.setDate(4, Date.valueOf(Granularity.WEEK.bucket(day)));
+      ps.setInt(5, delta);
+    });
+  }
+
+  public Series range(UUID userId, Granularity granularity, LocalDate from, LocalDate to) {
+    LocalDate start = granularity.bucket(from);
+    List<Bucket> buckets = jdbc.query("""
+            SELECT bucket_start, workouts FROM progress_rollups
+            WHERE user_id = ? AND granularity = ? AND bucket_start BETWEEN ? AND ? AND workouts > 0
+            ORDER BY bucket_start
+            """,
+        (rs, i) -> new Bucket(rs.getDate(1).toLocalDate(), rs.getInt(2)),
+        userId, granularity.name(), Date.valueOf(start), Date.valueOf(to));
+    return new Series(granularity, start, to, buckets);
+  }
+}
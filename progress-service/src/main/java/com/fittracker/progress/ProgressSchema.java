@@ -0,0 +1,104 @@
+package com.fittracker.progress;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Schema dat Hibernate (ddl-auto: update) niet zelf kan aanmaken, plus eenmalige migraties.
+// Idempotent: mag bij elke start lopen.
+// Loopt bij het aanmaken van de bean (InitializingBean), dus vóór Leaderboard start en vóór de
+// webserver requests aanneemt; een ApplicationRunner liep pas als er al verkeer binnenkwam.
+@Component
+public class ProgressSchema implements InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ProgressSchema.class);
+  private static final ObjectMapper JSON = new ObjectMapper();
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final BestLifts bestLifts;
+
+  public ProgressSchema(JdbcTemplate jdbc, TransactionTemplate tx, BestLifts bestLifts) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+    this.bestLifts = bestLifts;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    tx.executeWithoutResult(s -> {
+      jdbc.execute("""
+          CREATE TABLE IF NOT EXISTS best_lifts (
+            user_id    uuid             NOT NULL,
+            exercise   text             NOT NULL,
+            weight     double precision NOT NULL,
+            updated_at timestamptz      NOT NULL DEFAULT now(),
+            PRIMARY KEY (user_id, exercise)
+          )""");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS best_lifts_exercise_weight_idx ON best_lifts (exercise, weight DESC)");
+      // workouts per dag/week; de PK dient ook als index voor range queries per user
+      jdbc.execute("""
+          CREATE TABLE IF NOT EXISTS progress_rollups (
+            user_id      uuid        NOT NULL,
+            granularity  varchar(4)  NOT NULL,
+            bucket_start date        NOT NULL,
+            workouts     int         NOT NULL,
+            PRIMARY KEY (user_id, granularity, bucket_start)
+          )""");
+      migrateBestLiftsColumn();
+      normalizeExercises();
+    });
+  }
+
+  // Oefeningen die nog niet genormaliseerd opgeslagen zijn (van vóór BestLifts.exercise) samenvoegen
+  // met hun genormaliseerde naam; per (user, oefening) blijft het maximum
+  private void normalizeExercises() {
+    String normalized = "replace(replace(lower(btrim(exercise)), '.', '_'), '$', '_')";
+    int merged = jdbc.update("""
+        INSERT INTO best_lifts (user_id, exercise, weight, updated_at)
+        SELECT user_id, %1$s, max(weight), max(updated_at) FROM best_lifts
+        WHERE exercise <> %1$s
+        GROUP BY user_id, %1$s
+        ON CONFLICT (user_id, exercise) DO UPDATE
+          SET weight = GREATEST(best_lifts.weight, EXCLUDED.weight),
+              updated_at = GREATEST(best_lifts.updated_at, EXCLUDED.updated_at)
+        """.formatted(normalized));
+    if (merged == 0) return;
+    jdbc.update("DELETE FROM best_lifts WHERE exercise <> " + normalized);
+    log.info("normalized {} best lift exercise names", merged);
+  }
+
+  // Oude progress.best_lifts TEXT kolom (JSON) overzetten naar best_lifts en daarna droppen
+  private void migrateBestLiftsColumn() {
+    Integer exists = jdbc.queryForObject("""
+        SELECT count(*) FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'progress' AND column_name = 'best_lifts'
+        """, Integer.class);
+    if (exists == null || exists == 0) return;
+
+    int[] counts = new int[2];
+    jdbc.query("SELECT user_id, best_lifts FROM progress WHERE best_lifts IS NOT NULL AND best_lifts <> '{}'", rs -> {
+      UUID userId = rs.getObject(1, UUID.class);
+      try {
+        Map<String, Double> lifts = JSON.readValue(rs.getString(2), new TypeReference<LinkedHashMap<String, Double>>() {});
+        if (lifts != null) bestLifts.merge(userId, lifts);
+        counts[0]++;
+      } catch (Exception e) {
+        // ongeldige JSON (de kolom werd nooit gevalideerd): overslaan i.p.v. de start te blokkeren
+        log.warn("skipping invalid bestLifts for user {}: {}", userId, e.getMessage());
+        counts[1]++;
+      }
+    });
+    jdbc.execute("ALTER TABLE progress DROP COLUMN best_lifts");
+    log.info("migrated best lifts of {} users to best_lifts ({} skipped)", counts[0], counts[1]);
+  }
+}
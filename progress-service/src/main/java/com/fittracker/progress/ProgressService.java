@@ -1,10 +1,18 @@
 package com.fittracker.progress;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -12,73 +20,194 @@ import java.util.UUID;
 public class ProgressService {
 
   private final ProgressRepository repo;
+  private final AppliedBatchRepository batches;
+  private final ProgressWriteBehind writeBehind;
+  private final BestLifts bestLifts;
+  private final Leaderboard leaderboard;
+  private final ProgressRollups rollups;
 
   // Constructor injection
-  public ProgressService(ProgressRepository repo) {
+  public ProgressService(ProgressRepository repo, AppliedBatchRepository batches, ProgressWriteBehind writeBehind,
+                         BestLifts bestLifts, Leaderboard leaderboard, ProgressRollups rollups) {
     this.repo = repo;
+    this.batches = batches;
+    this.writeBehind = writeBehind;
+    this.bestLifts = bestLifts;
+    this.leaderboard = leaderboard;
+    this.rollups = rollups;
   }
 
-  // Haal ALLE progress-records op (zeldzaam, maar handig voor overzicht/debug)
-  public List<Progress> getAll() {
-    return repo.findAll();
+  static final int DEFAULT_LIMIT = 50;
+  static final int MAX_LIMIT = 500;
+
+  // Pagina van progress-records, gesorteerd op id (keyset i.p.v. alles in één keer).
+  // We vragen limit + 1 op: is er een extra rij, dan bestaat er een volgende pagina.
+  // Alles in één keer → GET /progress?stream=true (ProgressExporter)
+  @Transactional(readOnly = true)
+  public ProgressPage page(Integer limit, String cursor) {
+    int size = (limit == null) ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+    Limit fetch = Limit.of(size + 1);
+    UUID after = (cursor == null || cursor.isBlank()) ? null : ProgressPage.after(cursor);
+
+    List<Progress> rows = writeBehind.read(() -> (after == null
+        ? repo.findAllByOrderByIdAsc(fetch)
+        : repo.findByIdGreaterThanOrderByIdAsc(after, fetch)).stream().map(this::withPending).toList());
+
+    List<Progress> items = rows.size() > size ? rows.subList(0, size) : rows;
+    // best lifts van alle users op deze pagina in één query
+    Map<UUID, Map<String, Double>> lifts = bestLifts.get(items.stream().map(Progress::getUserId).toList());
+    items.forEach(p -> p.setBestLifts(lifts.getOrDefault(p.getUserId(), new LinkedHashMap<>())));
+
+    String next = rows.size() > size ? ProgressPage.cursor(items.get(size - 1).getId()) : null;
+    return new ProgressPage(items, next);
   }
 
   // Haal progress op voor 1 user.
-  // Als er nog geen record bestaat → maak er meteen eentje aan met default waarden
+  // Als er nog geen record bestaat → een virtueel record met 0 workouts teruggeven, zonder het op te slaan.
+  // Reads schrijven dus nooit (read-only transactie, kan naar een replica); het echte record
+  // ontstaat pas bij de eerste write (increment, deltas of upsert).
+  @Transactional(readOnly = true)
   public Progress getByUser(UUID userId) {
-    return repo.findByUserId(userId).orElseGet(() -> {
-      Progress p = new Progress();
-      p.setUserId(userId);
-      p.setWorkoutsCompleted(0);
-      p.setBestLifts("{}");            // lege JSON als default
-      p.setUpdatedAt(Instant.now());   // nu als timestamp
-      return repo.save(p);
-    });
+    return withBestLifts(writeBehind.read(() -> withPending(repo.findByUserId(userId).orElseGet(() -> empty(userId)))));
+  }
+
+  // Nog niet opgeslagen default: geen id en geen updatedAt
+  private static Progress empty(UUID userId) {
+    return new Progress(null, userId, 0, new LinkedHashMap<>(), null);
+  }
+
+  // Nog niet weggeschreven increments (write-behind) meetellen.
+  // Kopie i.p.v. de managed entity aanpassen, anders zou JPA de som zelf wegschrijven.
+  private Progress withPending(Progress p) {
+    int pending = writeBehind.pending(p.getUserId());
+    if (pending == 0) return p;
+    return new Progress(p.getId(), p.getUserId(), p.getWorkoutsCompleted() + pending, p.getBestLifts(), p.getUpdatedAt());
   }
 
   // Verhoog workoutsCompleted met +1 (of maak record aan met waarde 1)
-  // Belangrijk: slechts 1 save uitvoeren om overbodige DB calls te vermijden
+  // Eén INSERT ... ON CONFLICT statement i.p.v. lezen + verhogen in Java + save:
+  // gelijktijdige increments voor dezelfde user gaan zo niet meer verloren
+  // Met write-behind aan: enkel in het geheugen optellen, de scheduler schrijft gebundeld weg
   public Progress incrementWorkouts(UUID userId) {
-    Progress p = repo.findByUserId(userId).orElse(null);
-
-    if (p == null) {
-      // Bestaat nog niet → nieuwe progress starten op 1
-      Progress created = new Progress();
-      created.setUserId(userId);
-      created.setWorkoutsCompleted(1);
-      created.setBestLifts("{}");
-      created.setUpdatedAt(Instant.now());
-      return repo.save(created);
-    } else {
-      // Bestaat wel → gewoon verhogen en opslaan
-      p.setWorkoutsCompleted(p.getWorkoutsCompleted() + 1);
-      p.setUpdatedAt(Instant.now());
-      return repo.save(p);
+    if (writeBehind.add(userId, 1)) {
+      leaderboard.add(userId, 1);
+      return getByUser(userId);
+    }
+    Progress p = repo.incrementWorkouts(UuidV7.next(), userId, 1);
+    rollups.record(Map.of(userId, 1), Instant.now());
+    afterCommit(() -> leaderboard.add(userId, 1));
+    return withBestLifts(p);
+  }
+
+  // Geaggregeerde deltas per user uit de workouts change stream (+1 per nieuwe, -1 per verwijderde workout).
+  // Idempotent: een batchId wordt maar één keer toegepast, in dezelfde transactie als de tellers.
+  // Geeft false terug als de batch al eerder toegepast werd.
+  public boolean applyDeltas(String batchId, Map<UUID, Integer> deltas) {
+    if (batchId == null || batchId.isBlank()) {
+      throw new IllegalArgumentException("batchId is required");
     }
+    if (batches.existsById(batchId)) return false;
+    // gelijktijdig dezelfde batch → PK conflict bij commit, de afzender probeert opnieuw
+    batches.save(new AppliedBatch(batchId, Instant.now()));
+
+    // atomische upsert per user; zakt nooit onder 0 (bv. delete van een workout van vóór de change stream)
+    deltas.forEach((userId, delta) -> {
+      if (userId == null || delta == null || delta == 0) return;
+      repo.incrementWorkouts(UuidV7.next(), userId, delta);
+      afterCommit(() -> leaderboard.add(userId, delta));
+    });
+    rollups.record(deltas, Instant.now());
+    return true;
+  }
+
+  // Nieuwe best lifts samenvoegen met de bestaande: per oefening het maximum bewaren (één statement).
+  // Zo overschrijven twee clients die verschillende oefeningen doorsturen elkaar niet.
+  public Progress mergeBestLifts(UUID userId, Map<String, Double> lifts) {
+    bestLifts.merge(userId, lifts);
+    return getByUser(userId);
+  }
+
+  // Best lifts van veel users tegelijk (workouts-service stuurt nieuwe PR's gebundeld door)
+  public int mergeBestLifts(Map<UUID, Map<String, Double>> liftsPerUser) {
+    bestLifts.merge(liftsPerUser);
+    return liftsPerUser.size();
+  }
+
+  // Leaderboards komen volledig uit het geheugen, geen transactie nodig
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public List<Leaderboard.Entry> leaderboard(List<UUID> cohort, int limit) {
+    return (cohort == null || cohort.isEmpty()) ? leaderboard.top(limit) : leaderboard.cohort(cohort, limit);
+  }
+
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public Leaderboard.Entry rank(UUID userId) {
+    return leaderboard.rank(userId);
+  }
+
+  // Workouts per dag/week voor een trendgrafiek (standaard het laatste jaar)
+  @Transactional(readOnly = true)
+  public ProgressRollups.Series rollups(UUID userId, ProgressRollups.Granularity granularity, LocalDate from, LocalDate to) {
+    LocalDate end = (to != null) ? to : LocalDate.now(ZoneOffset.UTC);
+    LocalDate start = (from != null) ? from : end.minusYears(1);
+    if (start.isAfter(end)) throw new IllegalArgumentException("from must be before to");
+    return rollups.range(userId, granularity, start, end);
+  }
+
+  // Top users voor één oefening (index scan op best_lifts)
+  @Transactional(readOnly = true)
+  public List<BestLifts.Top> topLifts(String exercise, int limit) {
+    return bestLifts.top(exercise, limit);
+  }
+
+  // Best lifts uit de side table in het (niet-persistente) veld zetten
+  private Progress withBestLifts(Progress p) {
+    p.setBestLifts(bestLifts.get(p.getUserId()));
+    return p;
   }
 
   // Upsert logica:
   // - Als er nog geen record is → nieuw record maken
   // - Als er wel al één is → bijwerken
+  // bestLifts worden samengevoegd (per oefening het maximum), niet meer volledig overschreven
   public Progress upsert(Progress body) {
     if (body.getUserId() == null) {
       throw new IllegalArgumentException("userId is required");
     }
+    if (body.getBestLifts() != null) bestLifts.merge(body.getUserId(), body.getBestLifts());
 
     Progress existing = repo.findByUserId(body.getUserId()).orElse(null);
     if (existing == null) {
       // Nog geen record → nieuwe maken
       body.setId(null); // laat @PrePersist de UUID zetten
-      if (body.getBestLifts() == null) body.setBestLifts("{}");
       if (body.getUpdatedAt() == null) body.setUpdatedAt(Instant.now());
       // workoutsCompleted is int → default = 0 als niet gezet
-      return repo.save(body);
+      Progress saved = repo.save(body);
+      rollups.record(Map.of(saved.getUserId(), saved.getWorkoutsCompleted()), Instant.now());
+      afterCommit(() -> leaderboard.set(saved.getUserId(), saved.getWorkoutsCompleted()));
+      return withBestLifts(saved);
     } else {
-      // Record bestaat al → bijwerken
-      if (body.getBestLifts() != null) existing.setBestLifts(body.getBestLifts());
+      // Record bestaat al → bijwerken; het verschil telt mee in de rollups van vandaag
+      rollups.record(Map.of(existing.getUserId(), body.getWorkoutsCompleted() - existing.getWorkoutsCompleted()), Instant.now());
       existing.setWorkoutsCompleted(body.getWorkoutsCompleted());
       existing.setUpdatedAt(Instant.now());
-      return repo.save(existing);
+      Progress saved = repo.save(existing);
+      afterCommit(() -> leaderboard.set(saved.getUserId(), saved.getWorkoutsCompleted()));
+      return withBestLifts(saved);
     }
   }
+
+  // Leaderboard pas bijwerken als de transactie gelukt is (rollback → leaderboard blijft juist).
+  // Increments gaan als delta i.p.v. absolute waarde: dan maakt de volgorde van de commits niet uit.
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
 }
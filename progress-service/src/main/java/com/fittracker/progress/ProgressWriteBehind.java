@@ -0,0 +1,256 @@
+package com.fittracker.progress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Optionele write-behind voor workout increments (piekmomenten, bv. einde van een groepsles).
+// Increments worden in het geheugen per user opgeteld en om de zoveel ms (of bij zoveel users)
+// in één multi-row upsert weggeschreven i.p.v. één transactie per increment.
+//
+// - gestripte tellers: elke stripe heeft een eigen lock, dus increments voor verschillende users
+//   blokkeren elkaar (bijna) nooit
+// - reads tellen de nog niet weggeschreven delta mee (read-your-writes); een flush houdt de write lock
+//   vast tot de DB write gecommit is, zodat een read de delta nooit dubbel of helemaal niet ziet
+// - bij het stoppen wordt alles nog weggeschreven; daarna gaan increments weer rechtstreeks naar de DB
+//
+// Uit bij default: een crash verliest de increments van de laatste flush-interval.
+@Component
+public class ProgressWriteBehind implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(ProgressWriteBehind.class);
+
+  // Zelfde logica als ProgressRepository.incrementWorkouts, maar voor veel users tegelijk.
+  // Gesorteerd op user_id zodat twee gelijktijdige upserts elkaar niet kunnen deadlocken.
+  static final String UPSERT = """
+      INSERT INTO progress (id, user_id, workouts_completed, updated_at)
+      SELECT t.id, t.user_id, t.delta, now()
+      FROM unnest(?::uuid[], ?::uuid[], ?::int[]) AS t(id, user_id, delta)
+      ORDER BY t.user_id
+      ON CONFLICT (user_id) DO UPDATE
+        SET workouts_completed = progress.workouts_completed + EXCLUDED.workouts_completed,
+            updated_at = now()
+      """;
+
+  private static final class Stripe {
+    final Map<UUID, Integer> counts = new HashMap<>();
+    boolean closed;
+  }
+
+  private final JdbcTemplate jdbc;
+  private final ProgressRollups rollups;
+  private final TransactionOperations tx;
+  private final boolean enabled;
+  private final Duration interval;
+  private final int maxEntries;
+  private final Stripe[] stripes;
+
+  private final AtomicInteger entries = new AtomicInteger();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+  private ScheduledExecutorService scheduler;
+  private volatile boolean running;
+
+  public ProgressWriteBehind(JdbcTemplate jdbc, ProgressRollups rollups, TransactionOperations tx,
+                             @Value("${progress.write-behind.enabled:false}") boolean enabled,
+                             @Value("${progress.write-behind.interval:200ms}") Duration interval,
+                             @Value("${progress.write-behind.max-entries:1000}") int maxEntries,
+                             @Value("${progress.write-behind.stripes:16}") int stripes) {
+    this.jdbc = jdbc;
+    this.rollups = rollups;
+    this.tx = tx;
+    this.enabled = enabled;
+    this.interval = interval;
+    this.maxEntries = Math.max(1, maxEntries);
+    this.stripes = new Stripe[Math.max(1, stripes)];
+    for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new Stripe();
+  }
+
+  // Increment bufferen. false → niet actief, de caller schrijft zelf rechtstreeks naar de DB.
+  public boolean add(UUID userId, int delta) {
+    if (!running) return false;
+    Stripe s = stripe(userId);
+    boolean newEntry;
+    synchronized (s) {
+      if (s.closed) return false;
+      Integer old = s.counts.put(userId, s.counts.getOrDefault(userId, 0) + delta);
+      newEntry = old == null;
+    }
+    if (newEntry && entries.incrementAndGet() >= maxEntries) requestFlush();
+    return true;
+  }
+
+  // Nog niet weggeschreven delta voor deze user (0 als er niets hangt)
+  public int pending(UUID userId) {
+    Stripe s = stripe(userId);
+    synchronized (s) {
+      return s.counts.getOrDefault(userId, 0);
+    }
+  }
+
+  // DB read + pending() samen uitvoeren zonder dat er een flush tussen komt
+  public <T> T read(Supplier<T> reader) {
+    if (!running) return reader.get();
+    flushLock.readLock().lock();
+    try {
+      return reader.get();
+    } finally {
+      flushLock.readLock().unlock();
+    }
+  }
+
+  // Alle gebufferde deltas in één statement wegschrijven
+  void flush() {
+    flush(false);
+  }
+
+  private void flush(boolean closing) {
+    flushRequested.set(false);
+    flushLock.writeLock().lock();
+    try {
+      Map<UUID, Integer> batch = drain(closing);
+      if (batch.isEmpty()) return;
+      try {
+        write(batch);
+      } catch (RuntimeException e) {
+        if (closing) {
+          log.error("could not flush {} pending progress increments on shutdown: {}", batch, e.getMessage());
+        } else {
+          // terugzetten, volgende flush probeert opnieuw
+          log.warn("progress write-behind flush failed, retrying later: {}", e.getMessage());
+          batch.forEach(this::restore);
+        }
+      }
+    } finally {
+      flushLock.writeLock().unlock();
+    }
+  }
+
+  private Map<UUID, Integer> drain(boolean closing) {
+    Map<UUID, Integer> batch = new TreeMap<>();
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        batch.putAll(s.counts);
+        entries.addAndGet(-s.counts.size());
+        s.counts.clear();
+        if (closing) s.closed = true;
+      }
+    }
+    batch.values().removeIf(d -> d == 0);
+    return batch;
+  }
+
+  private void restore(UUID userId, int delta) {
+    Stripe s = stripe(userId);
+    synchronized (s) {
+      if (s.counts.put(userId, s.counts.getOrDefault(userId, 0) + delta) == null) entries.incrementAndGet();
+    }
+  }
+
+  // Tellers en rollups in dezelfde transactie: een mislukte flush laat beide ongewijzigd
+  private void write(Map<UUID, Integer> batch) {
+    tx.executeWithoutResult(s -> {
+      upsert(batch);
+      rollups.record(batch, Instant.now());
+    });
+  }
+
+  private void upsert(Map<UUID, Integer> batch) {
+    UUID[] ids = new UUID[batch.size()];
+    UUID[] users = new UUID[batch.size()];
+    Integer[] deltas = new Integer[batch.size()];
+    int i = 0;
+    for (Map.Entry<UUID, Integer> e : batch.entrySet()) {
+      ids[i] = UuidV7.next(); // enkel gebruikt als er nog geen record bestaat
+      users[i] = e.getKey();
+      deltas[i] = e.getValue();
+      i++;
+    }
+    jdbc.update(UPSERT, ps -> {
+      Connection c = ps.getConnection();
+      Array a1 = c.createArrayOf("uuid", ids);
+      Array a2 = c.createArrayOf("uuid", users);
+      Array a3 = c.createArrayOf("int4", deltas);
+      ps.setArray(1, a1);
+      ps.setArray(2, a2);
+      ps.setArray(3, a3);
+    });
+  }
+
+  private void requestFlush() {
+    if (scheduler != null && flushRequested.compareAndSet(false, true)) {
+      scheduler.execute(this::flushQuietly);
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("progress write-behind flush failed: {}", e.getMessage());
+    }
+  }
+
+  private Stripe stripe(UUID userId) {
+    return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) return;
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "progress-write-behind");
+      t.setDaemon(true);
+      return t;
+    });
+    long ms = Math.max(1, interval.toMillis());
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, ms, ms, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // laatste flush; stripes gaan dicht zodat late increments rechtstreeks naar de DB gaan
+    flush(true);
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  // Pas stoppen nadat de webserver geen requests meer aanneemt
+  @Override
+  public int getPhase() {
+    return 0;
+  }
+}
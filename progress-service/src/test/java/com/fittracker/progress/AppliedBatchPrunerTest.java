@@ -0,0 +1,24 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AppliedBatchPrunerTest {
+
+  AppliedBatchRepository batches = mock(AppliedBatchRepository.class);
+  Instant now = Instant.parse("2026-03-10T12:00:00Z");
+  AppliedBatchPruner pruner = new AppliedBatchPruner(batches, Duration.ofDays(7), Duration.ofHours(1));
+
+  @Test
+  void prune_deletesBatchesOlderThanRetention() {
+    when(batches.deleteAppliedBefore(Instant.parse("2026-03-03T12:00:00Z"))).thenReturn(42);
+
+    assertEquals(42, pruner.prune(now));
+    verify(batches).deleteAppliedBefore(Instant.parse("2026-03-03T12:00:00Z"));
+  }
+}
@@ -0,0 +1,57 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BestLiftsTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  BestLifts bestLifts = new BestLifts(jdbc);
+  UUID u1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+  @Test
+  void exercise_normalizesLikeWorkoutsService() {
+    assertEquals("bench press", BestLifts.exercise(" Bench Press "));
+    assertEquals("db_row", BestLifts.exercise("DB.Row"));
+    assertEquals("_inc", BestLifts.exercise("$inc"));
+  }
+
+  @Test
+  void merge_normalizesNames_andKeepsMaximumPerNormalizedName() throws Exception {
+    bestLifts.merge(u1, Map.of("Bench Press", 100.0, "bench press", 105.0, "Squat", 140.0, " ", 50.0));
+
+    ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+    verify(jdbc).update(eq(BestLifts.MERGE), setter.capture());
+    PreparedStatement ps = mock(PreparedStatement.class);
+    Connection con = mock(Connection.class);
+    when(ps.getConnection()).thenReturn(con);
+    when(con.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+    setter.getValue().setValues(ps);
+
+    // één rij per (user, genormaliseerde oefening), anders raakt ON CONFLICT dezelfde rij twee keer
+    verify(con).createArrayOf("uuid", new Object[] {u1, u1});
+    verify(con).createArrayOf("text", new Object[] {"bench press", "squat"});
+    verify(con).createArrayOf("float8", new Object[] {105.0, 140.0});
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void top_matchesNormalizedName() {
+    bestLifts.top("Bench Press", 10);
+
+    verify(jdbc).query(anyString(), any(RowMapper.class), eq("bench press"), eq(10));
+  }
+}
@@ -0,0 +1,107 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LeaderboardTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  Leaderboard board = new Leaderboard(jdbc);
+
+  UUID a = new UUID(0, 1);
+  UUID b = new UUID(0, 2);
+  UUID c = new UUID(0, 3);
+  UUID d = new UUID(0, 4);
+
+  @Test
+  void top_sortsByScore_andSharesRankOnTies() {
+    board.set(a, 5);
+    board.set(b, 9);
+    board.set(c, 5);
+    board.set(d, 1);
+
+    // gelijke scores → zelfde rank, daarna wordt er overgeslagen (1, 2, 2, 4)
+    assertEquals(List.of(
+        new Leaderboard.Entry(1, b, 9),
+        new Leaderboard.Entry(2, a, 5),
+        new Leaderboard.Entry(2, c, 5),
+        new Leaderboard.Entry(4, d, 1)), board.top(10));
+    assertEquals(2, board.top(2).size());
+  }
+
+  @Test
+  void add_movesUserAndUpdatesRank() {
+    board.set(a, 3);
+    board.set(b, 4);
+    assertEquals(2, board.rank(a).rank());
+
+    board.add(a, 2);
+
+    assertEquals(1, board.rank(a).rank());
+    assertEquals(5, board.rank(a).workoutsCompleted());
+    assertEquals(2, board.rank(b).rank());
+    // oude positie van a is weg
+    assertEquals(2, board.top(10).size());
+  }
+
+  @Test
+  void add_neverBelowZero_andUnknownUserRanksAsZero() {
+    board.set(a, 2);
+    board.add(b, -3);
+
+    assertEquals(0, board.rank(b).workoutsCompleted());
+    // c heeft nog geen progress → telt als 0, achter a
+    assertEquals(new Leaderboard.Entry(2, c, 0), board.rank(c));
+  }
+
+  @Test
+  void rank_worksForScoresBeyondInitialTreeSize() {
+    board.set(a, 10);
+    board.set(b, 50_000);
+    board.set(c, 2_000);
+
+    assertEquals(1, board.rank(b).rank());
+    assertEquals(2, board.rank(c).rank());
+    assertEquals(3, board.rank(a).rank());
+  }
+
+  @Test
+  void cohort_ranksOnlyGivenUsers() {
+    board.set(a, 1);
+    board.set(b, 20);
+    board.set(c, 7);
+
+    // b zit niet in de cohort; d heeft nog geen progress
+    assertEquals(List.of(
+        new Leaderboard.Entry(1, c, 7),
+        new Leaderboard.Entry(2, a, 1),
+        new Leaderboard.Entry(3, d, 0)), board.cohort(List.of(a, c, d, a), 10));
+  }
+
+  @Test
+  void start_warmsFromDatabase() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getObject(1, UUID.class)).thenReturn(a, b);
+    when(rs.getInt(2)).thenReturn(4, 8);
+    doAnswer(inv -> {
+      RowCallbackHandler h = inv.getArgument(1);
+      h.processRow(rs);
+      h.processRow(rs);
+      return null;
+    }).when(jdbc).query(anyString(), any(RowCallbackHandler.class));
+
+    board.start();
+
+    assertEquals(2, board.size());
+    assertEquals(new Leaderboard.Entry(1, b, 8), board.top(1).get(0));
+  }
+}
@@ -0,0 +1,66 @@
+package com.fittracker.progress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProgressExporterTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  ProgressWriteBehind writeBehind = mock(ProgressWriteBehind.class);
+
+  @Test
+  void export_writesOneJsonLinePerRow_withBestLiftsAndPendingIncrements() throws Exception {
+    UUID user = UUID.randomUUID();
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getObject(1, UUID.class)).thenAnswer(inv -> UUID.randomUUID());
+    when(rs.getObject(2, UUID.class)).thenReturn(user);
+    when(rs.getInt(3)).thenReturn(4);
+    when(rs.getTimestamp(4)).thenReturn(Timestamp.from(Instant.parse("2025-01-01T00:00:00Z")));
+    when(rs.getString(5)).thenReturn("{\"bench\": 80}", (String) null);
+    when(writeBehind.pending(user)).thenReturn(2);
+
+    Connection con = mock(Connection.class);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    when(con.prepareStatement(anyString())).thenReturn(ps);
+    doAnswer(inv -> {
+      inv.getArgument(0, PreparedStatementCreator.class).createPreparedStatement(con);
+      RowCallbackHandler h = inv.getArgument(1);
+      for (int i = 0; i < 2; i++) h.processRow(rs);
+      return null;
+    }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+    var out = new ByteArrayOutputStream();
+    long count = new ProgressExporter(jdbc, txManager, mapper, writeBehind, 500).export(out);
+
+    assertEquals(2, count);
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(2, lines.length);
+    // 4 in de DB + 2 nog niet weggeschreven
+    assertEquals(6, mapper.readTree(lines[0]).get("workoutsCompleted").asInt());
+    assertEquals(80.0, mapper.readTree(lines[0]).get("bestLifts").get("bench").asDouble());
+    assertTrue(mapper.readTree(lines[1]).get("bestLifts").isEmpty());
+
+    verify(ps).setFetchSize(500);
+    verify(txManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+  }
+}
@@ -0,0 +1,105 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Stress test tegen een echte Postgres (niet in de gewone build).
+// Starten met bv.:
+//   PROGRESS_TEST_DB_URL=jdbc:postgresql://localhost:5432/progressdb mvn test -Dtest=ProgressIncrementStressTest
+// Vergelijkt de atomische upsert met de oude read-modify-write (find + 1 + save) voor één nieuwe user.
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "PROGRESS_TEST_DB_URL", matches = ".+")
+class ProgressIncrementStressTest {
+
+  static final int THREADS = 32;
+  static final int INCREMENTS = 500;
+
+  @DynamicPropertySource
+  static void db(DynamicPropertyRegistry r) {
+    r.add("spring.datasource.url", () -> System.getenv("PROGRESS_TEST_DB_URL"));
+    r.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+  }
+
+  @Autowired ProgressService service;
+  @Autowired ProgressRepository repo;
+  @Autowired TransactionTemplate tx;
+
+  @Test
+  void atomicUpsert_isExact_underParallelIncrements() throws Exception {
+    UUID user = UUID.randomUUID();
+
+    Run run = run(() -> service.incrementWorkouts(user));
+
+    // elke increment telt, ook de allereerste (geen unique-conflict)
+    assertEquals(0, run.failed(), "geen enkele increment mag falen");
+    assertEquals(INCREMENTS, repo.findByUserId(user).orElseThrow().getWorkoutsCompleted());
+    System.out.printf("atomic upsert:      %d ok, %d failed, count=%d, %.0f ops/s%n",
+        run.ok(), run.failed(), INCREMENTS, run.opsPerSecond());
+  }
+
+  @Test
+  void readModifyWrite_losesUpdates_forComparison() throws Exception {
+    UUID user = UUID.randomUUID();
+
+    // de oude implementatie van incrementWorkouts
+    Run run = run(() -> tx.executeWithoutResult(s -> {
+      Progress p = repo.findByUserId(user).orElse(null);
+      if (p == null) {
+        p = new Progress();
+        p.setUserId(user);
+      }
+      p.setWorkoutsCompleted(p.getWorkoutsCompleted() + 1);
+      p.setUpdatedAt(Instant.now());
+      repo.save(p);
+    }));
+
+    int count = repo.findByUserId(user).map(Progress::getWorkoutsCompleted).orElse(0);
+    System.out.printf("read-modify-write:  %d ok, %d failed, count=%d (lost %d), %.0f ops/s%n",
+        run.ok(), run.failed(), count, INCREMENTS - count, run.opsPerSecond());
+    // enkel rapporteren: het aantal verloren updates hangt van de timing af
+    assertTrue(count <= INCREMENTS);
+  }
+
+  record Run(int ok, int failed, double opsPerSecond) { }
+
+  private static Run run(Runnable increment) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    AtomicInteger ok = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    try {
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < INCREMENTS; i++) {
+        futures.add(pool.submit(() -> {
+          try {
+            increment.run();
+            ok.incrementAndGet();
+          } catch (RuntimeException e) {
+            failed.incrementAndGet();
+          }
+        }));
+      }
+      for (Future<?> f : futures) f.get();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      return new Run(ok.get(), failed.get(), INCREMENTS / seconds);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
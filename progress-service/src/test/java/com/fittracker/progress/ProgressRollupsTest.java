@@ -0,0 +1,67 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProgressRollupsTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  ProgressRollups rollups = new ProgressRollups(jdbc);
+
+  @Test
+  void week_startsOnMonday() {
+    // zondag 9 feb 2025 hoort bij de week van maandag 3 feb
+    assertEquals(LocalDate.of(2025, 2, 3), ProgressRollups.Granularity.WEEK.bucket(LocalDate.of(2025, 2, 9)));
+    assertEquals(LocalDate.of(2025, 2, 3), ProgressRollups.Granularity.WEEK.bucket(LocalDate.of(2025, 2, 3)));
+    assertEquals(LocalDate.of(2025, 2, 9), ProgressRollups.Granularity.DAY.bucket(LocalDate.of(2025, 2, 9)));
+    assertThrows(IllegalArgumentException.class, () -> ProgressRollups.Granularity.parse("month"));
+  }
+
+  @Test
+  void record_oneStatementPerDistinctDelta_withDayAndWeekBucket() throws Exception {
+    UUID a = UUID.randomUUID();
+    UUID b = UUID.randomUUID();
+    UUID c = UUID.randomUUID();
+
+    // a en b +1, c -1, nul wordt overgeslagen (TreeMap: eerst -1, dan +1)
+    rollups.record(Map.of(a, 1, b, 1, c, -1, UUID.randomUUID(), 0), Instant.parse("2025-02-09T23:30:00Z"));
+
+    var setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+    verify(jdbc, times(2)).update(eq(ProgressRollups.RECORD), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    when(ps.getConnection()).thenReturn(mock(Connection.class));
+    setter.getAllValues().get(1).setValues(ps);
+    verify(ps).setInt(1, 1);
+    verify(ps).setDate(3, Date.valueOf("2025-02-09"));
+    verify(ps).setDate(4, Date.valueOf("2025-02-03"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void range_alignsStartToBucket() {
+    UUID user = UUID.randomUUID();
+
+    var res = rollups.range(user, ProgressRollups.Granularity.WEEK, LocalDate.of(2025, 2, 5), LocalDate.of(2025, 3, 1));
+
+    // woensdag 5 feb → week van maandag 3 feb
+    assertEquals(LocalDate.of(2025, 2, 3), res.from());
+    verify(jdbc).query(anyString(), any(RowMapper.class),
+        eq(user), eq("WEEK"), eq(Date.valueOf("2025-02-03")), eq(Date.valueOf("2025-03-01")));
+  }
+}
@@ -1,19 +1,31 @@
 package com.fittracker.progress;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,6 +34,23 @@ class ProgressServiceTest {
   @Mock
   ProgressRepository progressRepository;
 
+  @Mock
+  AppliedBatchRepository batchRepository;
+
+  @Mock
+  BestLifts bestLifts;
+
+  @Mock
+  ProgressRollups rollups;
+
+  @Spy
+  Leaderboard leaderboard = new Leaderboard(mock(JdbcTemplate.class));
+
+  // write-behind staat uit: alles gaat rechtstreeks naar de repository
+  @Spy
+  ProgressWriteBehind writeBehind = new ProgressWriteBehind(mock(JdbcTemplate.class), mock(ProgressRollups.class),
+      TransactionOperations.withoutTransaction(), false, Duration.ofMillis(200), 1000, 4);
+
   @InjectMocks
   ProgressService service;
 
@@ -35,21 +64,39 @@ class ProgressServiceTest {
         UUID.randomUUID(),
         u1,
         3,
-        "{}",
+        new LinkedHashMap<>(),
         Instant.now()
     );
   }
 
   @Test
-  void getAll_returnsAll() {
-    var list = List.of(existing);
-    when(progressRepository.findAll()).thenReturn(list);
+  void page_firstPage_returnsCursorWhenMoreRows() {
+    Progress second = new Progress(UUID.randomUUID(), UUID.randomUUID(), 1, new LinkedHashMap<>(), Instant.now());
+    when(progressRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(existing, second));
+
+    var res = service.page(1, null);
+
+    // limit + 1 opgevraagd: extra rij → volgende pagina begint na het laatste id
+    assertEquals(List.of(existing), res.items());
+    assertEquals(existing.getId(), ProgressPage.after(res.next()));
+    verify(progressRepository, never()).findAll();
+  }
+
+  @Test
+  void page_withCursor_continuesAfterId_lastPageHasNoCursor() {
+    UUID after = UUID.randomUUID();
+    when(progressRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(51))).thenReturn(List.of(existing));
 
-    var res = service.getAll();
+    var res = service.page(null, ProgressPage.cursor(after));
 
-    // checkt dat de lijst gewoon terugkomt uit de repo
-    assertSame(list, res);
-    verify(progressRepository).findAll();
+    assertEquals(List.of(existing), res.items());
+    assertNull(res.next());
+  }
+
+  @Test
+  void page_invalidCursor_throwsIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> service.page(10, "not-a-cursor"));
+    verifyNoInteractions(progressRepository);
   }
 
   @Test
@@ -65,61 +112,119 @@ class ProgressServiceTest {
   }
 
   @Test
-  void getByUser_createsWhenMissing_withZeroAndDefaults() {
+  void getByUser_missing_returnsVirtualZeroRecord_withoutSaving() {
     when(progressRepository.findByUserId(u1)).thenReturn(Optional.empty());
-    when(progressRepository.save(any(Progress.class))).thenAnswer(inv -> inv.getArgument(0));
 
     var res = service.getByUser(u1);
 
-    // nieuw record met defaults
+    // virtueel record met defaults, niet opgeslagen (geen id, geen updatedAt)
     assertEquals(u1, res.getUserId());
     assertEquals(0, res.getWorkoutsCompleted());
-    assertNotNull(res.getUpdatedAt());
-    assertEquals("{}", res.getBestLifts());
+    assertEquals(Map.of(), res.getBestLifts());
+    assertNull(res.getId());
+    assertNull(res.getUpdatedAt());
+    verify(progressRepository, never()).save(any());
+  }
 
-    ArgumentCaptor<Progress> cap = ArgumentCaptor.forClass(Progress.class);
-    verify(progressRepository).save(cap.capture());
-    assertEquals(0, cap.getValue().getWorkoutsCompleted());
+  @Test
+  void getByUser_isReadOnlyTransaction() throws Exception {
+    var tx = ProgressService.class.getMethod("getByUser", UUID.class).getAnnotation(Transactional.class);
+
+    // read-only → geen flush, kan naar een replica
+    assertNotNull(tx);
+    assertTrue(tx.readOnly());
   }
 
   @Test
-  void incrementWorkouts_incrementsExisting_inSingleSave() {
-    when(progressRepository.findByUserId(u1)).thenReturn(Optional.of(existing));
-    when(progressRepository.save(any(Progress.class))).thenAnswer(inv -> inv.getArgument(0));
+  void incrementWorkouts_usesSingleAtomicUpsert() {
+    Progress after = new Progress(existing.getId(), u1, 4, new LinkedHashMap<>(), Instant.now());
+    when(progressRepository.incrementWorkouts(any(UUID.class), eq(u1), eq(1))).thenReturn(after);
 
     var res = service.incrementWorkouts(u1);
 
-    // bestaande waarde (3) gaat naar 4
-    assertEquals(4, res.getWorkoutsCompleted());
-
-    ArgumentCaptor<Progress> cap = ArgumentCaptor.forClass(Progress.class);
-    verify(progressRepository).save(cap.capture());
-    assertEquals(4, cap.getValue().getWorkoutsCompleted());
-    assertNotNull(cap.getValue().getUpdatedAt());
+    // de database telt op, geen read-modify-write meer in Java
+    assertSame(after, res);
+    verify(progressRepository, never()).findByUserId(any());
+    verify(progressRepository, never()).save(any());
   }
 
   @Test
-  void incrementWorkouts_createsThenIncrementsWhenMissing_twoCallsTwoSaves() {
-    // eerste keer niets in de repo, tweede keer staat er eentje met waarde 1
-    Progress afterFirst = new Progress(UUID.randomUUID(), u1, 1, "{}", Instant.now());
+  void writes_updateLeaderboard() {
+    UUID u2 = UUID.randomUUID();
+    when(progressRepository.incrementWorkouts(any(UUID.class), eq(u1), eq(1))).thenReturn(existing);
+    when(progressRepository.findByUserId(u2)).thenReturn(Optional.empty());
+    when(progressRepository.save(any(Progress.class))).thenAnswer(inv -> inv.getArgument(0));
+    Progress body = new Progress();
+    body.setUserId(u2);
+    body.setWorkoutsCompleted(7);
 
-    when(progressRepository.findByUserId(u1))
-        .thenReturn(Optional.empty(), Optional.of(afterFirst));
+    service.incrementWorkouts(u1);
+    service.incrementWorkouts(u1);
+    service.upsert(body);
+
+    // u2 (7) staat voor u1 (2)
+    assertEquals(List.of(new Leaderboard.Entry(1, u2, 7), new Leaderboard.Entry(2, u1, 2)), service.leaderboard(null, 10));
+    assertEquals(2, service.rank(u1).rank());
+  }
+
+  @Test
+  void writes_recordRollupDeltas() {
+    when(progressRepository.incrementWorkouts(any(UUID.class), eq(u1), eq(1))).thenReturn(existing);
+    when(progressRepository.findByUserId(u1)).thenReturn(Optional.of(existing));
     when(progressRepository.save(any(Progress.class))).thenAnswer(inv -> inv.getArgument(0));
+    Progress body = new Progress();
+    body.setUserId(u1);
+    body.setWorkoutsCompleted(10);
 
-    // eerste increment: maakt record met 1
-    var p1 = service.incrementWorkouts(u1);
-    assertEquals(1, p1.getWorkoutsCompleted());
+    service.incrementWorkouts(u1);
+    service.upsert(body);
+
+    // increment telt +1; upsert van 3 naar 10 telt het verschil (+7)
+    verify(rollups).record(eq(Map.of(u1, 1)), any());
+    verify(rollups).record(eq(Map.of(u1, 7)), any());
+  }
 
-    // tweede increment: verhoogt naar 2
+  @Test
+  void rollups_defaultsToLastYear_andRejectsReversedRange() {
+    service.rollups(u1, ProgressRollups.Granularity.WEEK, null, LocalDate.of(2025, 6, 30));
+
+    verify(rollups).range(u1, ProgressRollups.Granularity.WEEK, LocalDate.of(2024, 6, 30), LocalDate.of(2025, 6, 30));
+    assertThrows(IllegalArgumentException.class, () ->
+        service.rollups(u1, ProgressRollups.Granularity.DAY, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)));
+  }
+
+  @Test
+  void incrementWorkouts_passesFreshIdForFirstInsert() {
+    when(progressRepository.incrementWorkouts(any(UUID.class), eq(u1), eq(1)))
+        .thenAnswer(inv -> new Progress(inv.getArgument(0), u1, 1, new LinkedHashMap<>(), Instant.now()));
+
+    var p1 = service.incrementWorkouts(u1);
     var p2 = service.incrementWorkouts(u1);
-    assertEquals(2, p2.getWorkoutsCompleted());
 
-    ArgumentCaptor<Progress> cap = ArgumentCaptor.forClass(Progress.class);
-    verify(progressRepository, times(2)).save(cap.capture());
-    var saved = cap.getAllValues();
-    assertEquals(1, saved.get(0).getWorkoutsCompleted());
-    assertEquals(2, saved.get(1).getWorkoutsCompleted());
+    // id wordt enkel gebruikt als er nog geen record is; elke call krijgt een nieuw id mee
+    assertNotNull(p1.getId());
+    assertNotEquals(p1.getId(), p2.getId());
+  }
+
+  @Test
+  void incrementWorkouts_withWriteBehind_buffersAndReadsIncludePending() {
+    var buffered = new ProgressWriteBehind(mock(JdbcTemplate.class), rollups,
+        TransactionOperations.withoutTransaction(), true, Duration.ofHours(1), 1000, 4);
+    var svc = new ProgressService(progressRepository, batchRepository, buffered, bestLifts, leaderboard, rollups);
+    when(progressRepository.findByUserId(u1)).thenReturn(Optional.of(existing));
+    buffered.start();
+    try {
+      svc.incrementWorkouts(u1);
+      var res = svc.incrementWorkouts(u1);
+
+      // nog niets naar de DB, maar de read ziet 3 + 2 (en de managed entity blijft ongewijzigd)
+      assertEquals(5, res.getWorkoutsCompleted());
+      assertEquals(3, existing.getWorkoutsCompleted());
+      assertEquals(5, svc.getByUser(u1).getWorkoutsCompleted());
+      verify(progressRepository, never()).incrementWorkouts(any(), any(), anyInt());
+    } finally {
+      buffered.stop();
+    }
   }
 
   @Test
@@ -135,7 +240,7 @@ class ProgressServiceTest {
     // defaults worden gezet
     assertEquals(u1, res.getUserId());
     assertEquals(0, res.getWorkoutsCompleted());
-    assertEquals("{}", res.getBestLifts());
+    assertEquals(Map.of(), res.getBestLifts());
     assertNotNull(res.getUpdatedAt());
 
     ArgumentCaptor<Progress> cap = ArgumentCaptor.forClass(Progress.class);
@@ -145,26 +250,96 @@ class ProgressServiceTest {
 
   @Test
   void upsert_updatesWhenPresent_overwritesFieldsAndTimestamp() {
-    Progress present = new Progress(UUID.randomUUID(), u1, 5, "{}", Instant.now().minusSeconds(60));
+    Progress present = new Progress(UUID.randomUUID(), u1, 5, new LinkedHashMap<>(), Instant.now().minusSeconds(60));
     Progress body = new Progress();
     body.setUserId(u1);
     body.setWorkoutsCompleted(9);
-    body.setBestLifts("{\"bench\":100}");
+    body.setBestLifts(Map.of("bench", 100.0));
 
     when(progressRepository.findByUserId(u1)).thenReturn(Optional.of(present));
     when(progressRepository.save(any(Progress.class))).thenAnswer(inv -> inv.getArgument(0));
 
     var res = service.upsert(body);
 
-    // nieuwe waardes overschrijven de oude
+    // workoutsCompleted wordt overschreven, best lifts samengevoegd in de side table
     assertEquals(9, res.getWorkoutsCompleted());
-    assertEquals("{\"bench\":100}", res.getBestLifts());
     assertNotNull(res.getUpdatedAt());
+    verify(bestLifts).merge(u1, Map.of("bench", 100.0));
 
     ArgumentCaptor<Progress> cap = ArgumentCaptor.forClass(Progress.class);
     verify(progressRepository).save(cap.capture());
     assertEquals(9, cap.getValue().getWorkoutsCompleted());
-    assertEquals("{\"bench\":100}", cap.getValue().getBestLifts());
+  }
+
+  @Test
+  void mergeBestLifts_mergesInSideTable_andReturnsCurrentLifts() {
+    when(progressRepository.findByUserId(u1)).thenReturn(Optional.of(existing));
+    when(bestLifts.get(u1)).thenReturn(Map.of("bench", 105.0, "squat", 140.0));
+
+    var res = service.mergeBestLifts(u1, Map.of("bench", 105.0, "squat", 120.0));
+
+    // GREATEST per oefening gebeurt in de database; het resultaat komt uit de side table
+    verify(bestLifts).merge(u1, Map.of("bench", 105.0, "squat", 120.0));
+    assertEquals(Map.of("bench", 105.0, "squat", 140.0), res.getBestLifts());
+    assertEquals(3, res.getWorkoutsCompleted());
+  }
+
+  @Test
+  void mergeBestLifts_batch_oneMergeForAllUsers() {
+    UUID u2 = UUID.randomUUID();
+    Map<UUID, Map<String, Double>> batch = Map.of(u1, Map.of("bench", 105.0), u2, Map.of("squat", 140.0));
+
+    assertEquals(2, service.mergeBestLifts(batch));
+    verify(bestLifts).merge(batch);
+    verifyNoMoreInteractions(bestLifts);
+  }
+
+  @Test
+  void page_fillsBestLiftsInOneQuery() {
+    Progress other = new Progress(UUID.randomUUID(), UUID.randomUUID(), 1, new LinkedHashMap<>(), Instant.now());
+    when(progressRepository.findAllByOrderByIdAsc(any())).thenReturn(List.of(existing, other));
+    when(bestLifts.get(List.of(u1, other.getUserId()))).thenReturn(Map.of(u1, Map.of("bench", 80.0)));
+
+    var res = service.page(10, null).items();
+
+    assertEquals(Map.of("bench", 80.0), res.get(0).getBestLifts());
+    assertEquals(Map.of(), res.get(1).getBestLifts());
+    verify(bestLifts, never()).get(any(UUID.class));
+  }
+
+  @Test
+  void bestLifts_acceptsLegacyJsonString() throws Exception {
+    var mapper = new ObjectMapper();
+
+    // seeders/postman sturen bestLifts nog als string
+    Progress legacy = mapper.readValue("{\"bestLifts\":\"{\\\"bench\\\": 80}\"}", Progress.class);
+    Progress object = mapper.readValue("{\"bestLifts\":{\"bench\":80}}", Progress.class);
+
+    assertEquals(Map.of("bench", 80.0), legacy.getBestLifts());
+    assertEquals(Map.of("bench", 80.0), object.getBestLifts());
+  }
+
+  @Test
+  void applyDeltas_appliesPerUser_andRecordsBatch() {
+    UUID u2 = UUID.randomUUID();
+    when(batchRepository.existsById("b1")).thenReturn(false);
+
+    assertTrue(service.applyDeltas("b1", Map.of(u1, 2, u2, -1)));
+
+    // één atomische upsert per user (de query zelf zorgt dat het niet onder 0 zakt)
+    verify(progressRepository).incrementWorkouts(any(UUID.class), eq(u1), eq(2));
+    verify(progressRepository).incrementWorkouts(any(UUID.class), eq(u2), eq(-1));
+    verify(batchRepository).save(argThat(b -> "b1".equals(b.getBatchId())));
+  }
+
+  @Test
+  void applyDeltas_sameBatchTwice_isSkipped() {
+    when(batchRepository.existsById("b1")).thenReturn(true);
+
+    assertFalse(service.applyDeltas("b1", Map.of(u1, 1)));
+
+    // niets dubbel geteld
+    verify(progressRepository, never()).incrementWorkouts(any(), any(), anyInt());
   }
 
   // hier kan nog een extra test bij: als userId null is, moet hij IllegalArgumentException gooien
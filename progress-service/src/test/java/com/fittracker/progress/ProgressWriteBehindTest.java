@@ -0,0 +1,112 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProgressWriteBehindTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  ProgressRollups rollups = mock(ProgressRollups.class);
+  ProgressWriteBehind writeBehind = new ProgressWriteBehind(jdbc, rollups,
+      TransactionOperations.withoutTransaction(), true, Duration.ofHours(1), 1000, 4);
+  UUID u1 = UUID.randomUUID();
+  UUID u2 = UUID.randomUUID();
+
+  @BeforeEach
+  void start() {
+    writeBehind.start();
+  }
+
+  @AfterEach
+  void stop() {
+    writeBehind.stop();
+  }
+
+  @Test
+  void add_accumulatesPerUser_untilFlush() throws Exception {
+    writeBehind.add(u1, 1);
+    writeBehind.add(u1, 1);
+    writeBehind.add(u2, 1);
+    assertEquals(2, writeBehind.pending(u1));
+
+    writeBehind.flush();
+
+    // één multi-row upsert voor alle users, rollups met dezelfde deltas
+    assertEquals(Map.of(u1, 2, u2, 1), written());
+    verify(rollups).record(eq(Map.of(u1, 2, u2, 1)), any());
+    assertEquals(0, writeBehind.pending(u1));
+  }
+
+  @Test
+  void flush_failure_keepsDeltasForNextFlush() {
+    writeBehind.add(u1, 3);
+    when(jdbc.update(eq(ProgressWriteBehind.UPSERT), any(PreparedStatementSetter.class)))
+        .thenThrow(new org.springframework.dao.DataAccessResourceFailureException("db down"));
+
+    writeBehind.flush();
+
+    // niets verloren: de delta staat er nog
+    assertEquals(3, writeBehind.pending(u1));
+  }
+
+  @Test
+  void stop_flushesAndFallsBackToDirectWrites() {
+    writeBehind.add(u1, 1);
+
+    writeBehind.stop();
+
+    verify(jdbc).update(eq(ProgressWriteBehind.UPSERT), any(PreparedStatementSetter.class));
+    // na het stoppen: increments niet meer bufferen
+    assertFalse(writeBehind.add(u1, 1));
+  }
+
+  @Test
+  void disabled_neverBuffers() {
+    var off = new ProgressWriteBehind(jdbc, rollups,
+        TransactionOperations.withoutTransaction(), false, Duration.ofMillis(200), 1000, 4);
+    off.start();
+    assertFalse(off.add(u1, 1));
+    assertFalse(off.isRunning());
+  }
+
+  // Voert de PreparedStatementSetter uit en leest de arrays terug (user_id[], delta[])
+  private Map<UUID, Integer> written() throws Exception {
+    ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+    verify(jdbc).update(eq(ProgressWriteBehind.UPSERT), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    Connection c = mock(Connection.class);
+    List<Object[]> arrays = new ArrayList<>();
+    when(ps.getConnection()).thenReturn(c);
+    when(c.createArrayOf(anyString(), any())).thenAnswer(inv -> {
+      arrays.add(inv.getArgument(1));
+      return null;
+    });
+    setter.getValue().setValues(ps);
+
+    // volgorde van de parameters: id[], user_id[], delta[]
+    Object[] users = arrays.get(1);
+    Object[] deltas = arrays.get(2);
+    Map<UUID, Integer> res = new HashMap<>();
+    for (int i = 0; i < users.length; i++) res.put((UUID) users[i], (Integer) deltas[i]);
+    return res;
+  }
+}
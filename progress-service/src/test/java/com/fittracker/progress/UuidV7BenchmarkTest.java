@@ -0,0 +1,73 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Benchmark tegen een echte Postgres (niet in de gewone build).
+// Starten met bv.:
+//   PROGRESS_TEST_DB_URL=jdbc:postgresql://localhost:5432/progressdb mvn test -Dtest=UuidV7BenchmarkTest
+// Vult twee tabellen met dezelfde vorm als progress, één met v4 en één met v7 keys,
+// en vergelijkt insert throughput en de grootte van de primary key index.
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "PROGRESS_TEST_DB_URL", matches = ".+")
+class UuidV7BenchmarkTest {
+
+  static final int ROWS = 500_000;
+  static final int BATCH = 1_000;
+
+  @DynamicPropertySource
+  static void db(DynamicPropertyRegistry r) {
+    r.add("spring.datasource.url", () -> System.getenv("PROGRESS_TEST_DB_URL"));
+  }
+
+  @Autowired JdbcTemplate jdbc;
+
+  @AfterEach
+  void cleanup() {
+    jdbc.execute("DROP TABLE IF EXISTS uuid_bench_v4, uuid_bench_v7");
+  }
+
+  @Test
+  void v7_insertsFaster_andKeepsIndexSmaller() {
+    Result v4 = run("uuid_bench_v4", UUID::randomUUID);
+    Result v7 = run("uuid_bench_v7", UuidV7::next);
+
+    System.out.printf("v4: %.0f rows/s, pk index %d kB%n", v4.rowsPerSecond(), v4.indexBytes() / 1024);
+    System.out.printf("v7: %.0f rows/s, pk index %d kB%n", v7.rowsPerSecond(), v7.indexBytes() / 1024);
+    // sequentiële inserts vullen index pages volledig (fillfactor), random inserts laten ze half leeg
+    assertTrue(v7.indexBytes() < v4.indexBytes());
+  }
+
+  record Result(double rowsPerSecond, long indexBytes) { }
+
+  private Result run(String table, Supplier<UUID> ids) {
+    jdbc.execute("DROP TABLE IF EXISTS " + table);
+    jdbc.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, user_id uuid NOT NULL, "
+        + "workouts_completed int NOT NULL, updated_at timestamptz)");
+
+    String sql = "INSERT INTO " + table + " (id, user_id, workouts_completed, updated_at) VALUES (?, ?, 0, now())";
+    long start = System.nanoTime();
+    for (int done = 0; done < ROWS; done += BATCH) {
+      List<Object[]> batch = new ArrayList<>(BATCH);
+      for (int i = 0; i < BATCH; i++) batch.add(new Object[] {ids.get(), UUID.randomUUID()});
+      jdbc.batchUpdate(sql, batch);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    Long size = jdbc.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class, table + "_pkey");
+    return new Result(ROWS / seconds, size);
+  }
+}
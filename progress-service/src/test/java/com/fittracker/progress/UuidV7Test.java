@@ -0,0 +1,71 @@
+package com.fittracker.progress;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+  @Test
+  void next_hasVersion7_variant2_andCurrentTimestamp() {
+    long before = System.currentTimeMillis();
+    UUID id = UuidV7.next();
+
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    assertTrue(UuidV7.millis(id) >= before);
+    assertTrue(UuidV7.millis(id) <= System.currentTimeMillis() + 1);
+  }
+
+  @Test
+  void next_sameMillisecond_isStrictlyIncreasing_evenPastCounterOverflow() {
+    long now = System.currentTimeMillis();
+    UUID prev = UuidV7.next(now);
+    // meer ids dan de 12 bit teller aankan binnen één ms → tijd schuift mee op
+    for (int i = 0; i < 10_000; i++) {
+      UUID id = UuidV7.next(now);
+      assertTrue(compare(prev, id) < 0, "ids moeten strikt stijgen");
+      assertTrue(UuidV7.millis(id) >= now);
+      prev = id;
+    }
+  }
+
+  @Test
+  void next_manyThreads_uniqueAndIncreasingPerThread() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<UUID>>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(pool.submit(() -> {
+          List<UUID> ids = new ArrayList<>();
+          for (int i = 0; i < 5_000; i++) ids.add(UuidV7.next());
+          return ids;
+        }));
+      }
+      Set<UUID> all = new HashSet<>();
+      for (Future<List<UUID>> f : futures) {
+        List<UUID> ids = f.get();
+        for (int i = 1; i < ids.size(); i++) assertTrue(compare(ids.get(i - 1), ids.get(i)) < 0);
+        all.addAll(ids);
+      }
+      assertEquals(8 * 5_000, all.size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // Zelfde volgorde als Postgres (unsigned, byte per byte); UUID.compareTo vergelijkt signed
+  private static int compare(UUID a, UUID b) {
+    int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+    return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+  }
+}
@@ -0,0 +1,24 @@
+package com.fittracker.users;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Vertaalt de exceptions uit de service laag naar nette HTTP statuscodes i.p.v. 500
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+  // ongeldige input (cursor, ...) → 400
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ProblemDetail badRequest(IllegalArgumentException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+  }
+
+  // unieke index geschonden, bv. een email die (op hoofdletters na) al bestaat → 409
+  @ExceptionHandler(DataIntegrityViolationException.class)
+  public ProblemDetail conflict(DataIntegrityViolationException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "user conflicts with an existing user (email already in use?)");
+  }
+}
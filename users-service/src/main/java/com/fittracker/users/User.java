@@ -1,15 +1,25 @@
 package com.fittracker.users;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.time.Instant;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")  // Map deze klasse naar de tabel 'users'
+@Table(name = "users",  // Map deze klasse naar de tabel 'users'
+    indexes = {
+        // index voor de keyset paginatie van GET /users
+        @Index(name = "users_created_at_id_idx", columnList = "createdAt, id"),
+        // hoofdletterongevoelig uniek: Alice@X.com en alice@x.com zijn dezelfde user
+        @Index(name = "users_email_normalized_idx", columnList = "emailNormalized", unique = true)
+    })
 public class User {
   @Id
   private UUID id;   // Primary key (UUID i.p.v. auto-increment)
@@ -17,6 +27,9 @@ public class User {
   @Column(nullable=false, unique=true)
   private String email;   // Email moet verplicht én uniek zijn
 
+  @JsonIgnore
+  private String emailNormalized;   // lower-case + trim van email, enkel voor opzoekingen (wordt automatisch gezet)
+
   @Column(nullable=false)
   private String displayName;   // Naam die de gebruiker ziet
 
@@ -25,8 +38,19 @@ public class User {
   @PrePersist
   public void prePersist() {
     // Zorgt dat er automatisch een UUID en createdAt gezet wordt
-    if (id == null) id = UUID.randomUUID();
+    if (id == null) id = UuidV7.next(); // tijdsgeordend, zie UuidV7
     if (createdAt == null) createdAt = Instant.now();
+    emailNormalized = normalize(email);
+  }
+
+  @PreUpdate
+  public void preUpdate() {
+    emailNormalized = normalize(email);
+  }
+
+  // Vorm waarin emails vergeleken worden (ook gebruikt door de email cache en lookups)
+  public static String normalize(String email) {
+    return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
   }
 
   // Lege constructor verplicht voor JPA
@@ -39,6 +63,7 @@ public class User {
   public void setEmail(String email) { this.email = email; }
   public String getDisplayName() { return displayName; }
   public void setDisplayName(String displayName) { this.displayName = displayName; }
+  public String getEmailNormalized() { return emailNormalized; }
   public Instant getCreatedAt() { return createdAt; }
   public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 }
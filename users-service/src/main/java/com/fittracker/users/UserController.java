@@ -1,32 +1,104 @@
 package com.fittracker.users;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/users")  // Alle endpoints beginnen met /users
 public class UserController {
   private final UserService svc;
+  private final UserExporter exporter;
+  private final UserLookup lookup;
+  private final UserSearch search;
+  private final UserImport importer;
 
   // zo wordt de service binnengehaald
-  public UserController(UserService svc){ 
+  public UserController(UserService svc, UserExporter exporter, UserLookup lookup, UserSearch search,
+                        UserImport importer){ 
     this.svc = svc; 
+    this.exporter = exporter;
+    this.lookup = lookup;
+    this.search = search;
+    this.importer = importer;
   }
 
-  // users ophalen, kan met email filter
+  // users ophalen:
+  // - met email filter → lijst met 0 of 1 user
+  // - anders een pagina; volgende pagina met ?cursor=<next uit het vorige antwoord>
   @GetMapping
-  public List<User> list(@RequestParam(required=false) String email){
-    return svc.list(email);
+  public ResponseEntity<?> list(
+      @RequestParam(required=false) String email,
+      @RequestParam(required=false) Integer limit,
+      @RequestParam(required=false) String cursor
+  ){
+    if (email != null && !email.isBlank()) return ResponseEntity.ok(svc.list(email));
+    return ResponseEntity.ok(svc.page(limit, cursor));
+  }
+
+  // alle users streamen als NDJSON (constant geheugen, ook voor heel veel users)
+  @GetMapping(params = "stream=true", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> stream(){
+    StreamingResponseBody body = exporter::export;
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+  }
+
+  // users zoeken op naam of email (autocomplete), beste matches eerst
+  @GetMapping("/search")
+  public List<User> search(@RequestParam String q, @RequestParam(required=false) Integer limit){
+    return search.search(q, limit);
+  }
+
+  // user id voor een email (hoofdletterongevoelig), bv. om een OAuth login aan een user te koppelen
+  // → {"id": "..."} of 404
+  @GetMapping("/resolve")
+  public ResponseEntity<Map<String, UUID>> resolve(@RequestParam String email){
+    return svc.resolve(email)
+        .map(id -> ResponseEntity.ok(Map.of("id", id)))
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  // veel users in één keer opzoeken, bv. {"ids": ["..."], "emails": ["a@b.com"]}
+  // antwoord: één resultaat per key in de volgorde van de request, met found=false als de user niet bestaat
+  @PostMapping("/lookup")
+  public List<UserLookup.Result> lookup(@RequestBody LookupRequest body){
+    return lookup.lookup(body.ids(), body.emails());
+  }
+
+  public record LookupRequest(List<UUID> ids, List<String> emails) { }
+
+  // veel users in één keer importeren (CSV met header email,displayName of NDJSON)
+  // bestaande emails worden overgeslagen; antwoord telt alles en lijst de afgekeurde rijen op
+  @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+  public UserImport.Result importUsers(
+      @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+      InputStream body
+  ) throws IOException {
+    return contentType.startsWith("text/csv") ? importer.importCsv(body) : importer.importNdjson(body);
+  }
+
+  // de ingelogde user zelf; de gateway zet X-User-Id op basis van het login token
+  @GetMapping("/me")
+  public ResponseEntity<User> me(@RequestHeader(value = "X-User-Id", required = false) UUID currentUser){
+    if (currentUser == null) return ResponseEntity.notFound().build();
+    return svc.find(currentUser).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
   }
 
   // user ophalen op basis van UUID
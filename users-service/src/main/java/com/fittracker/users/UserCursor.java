@@ -0,0 +1,26 @@
+package com.fittracker.users;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+// Keyset cursor voor paginatie: positie = (createdAt, id) van de laatste user op de vorige pagina
+// Als token geserialiseerd naar "createdAt|id" in base64url, zodat clients het niet hoeven te begrijpen
+public record UserCursor(Instant createdAt, UUID id) {
+
+  public String encode() {
+    String raw = createdAt + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static UserCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int sep = raw.indexOf('|');
+      return new UserCursor(Instant.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("invalid cursor", e);
+    }
+  }
+}
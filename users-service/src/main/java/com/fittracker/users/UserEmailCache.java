@@ -0,0 +1,53 @@
+package com.fittracker.users;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+// Cache van genormaliseerde email → user id, voor het koppelen van een OAuth identiteit aan een user.
+// Begrensd in grootte en met TTL; onbekende emails worden niet gecached (een nieuwe user is meteen vindbaar).
+// UserService invalideert bij update en delete. Metrics: /actuator/metrics/cache.gets?tag=cache:users.email
+// en users.email-cache.hit-ratio.
+@Component
+public class UserEmailCache {
+
+  static final String NAME = "users.email";
+
+  private final UserRepository repo;
+  private final Cache<String, UUID> cache;
+
+  public UserEmailCache(UserRepository repo, MeterRegistry registry,
+                        @Value("${users.email-cache.ttl:10m}") Duration ttl,
+                        @Value("${users.email-cache.max-size:100000}") long maxSize) {
+    this.repo = repo;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, cache, NAME);
+    Gauge.builder("users.email-cache.hit-ratio", cache, c -> c.stats().hitRate())
+        .description("Aandeel email lookups dat uit het geheugen komt")
+        .register(registry);
+  }
+
+  // User id voor een email (hoofdletterongevoelig), leeg als er geen user is
+  public Optional<UUID> resolve(String email) {
+    String key = User.normalize(email);
+    if (key == null || key.isEmpty()) return Optional.empty();
+    return Optional.ofNullable(cache.get(key, k -> repo.findByEmailNormalized(k).map(User::getId).orElse(null)));
+  }
+
+  public void invalidate(String email) {
+    String key = User.normalize(email);
+    if (key != null) cache.invalidate(key);
+  }
+}
@@ -0,0 +1,68 @@
+package com.fittracker.users;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Streamt alle users als NDJSON (één JSON-object per lijn) met een JDBC cursor.
+// Postgres levert de rijen per fetch-size blok (enkel binnen een transactie), dus het geheugengebruik
+// blijft constant, ongeacht het aantal users. Een trage client remt ook het lezen af.
+@Component
+public class UserExporter {
+
+  private static final byte[] NEWLINE = {'\n'};
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final ObjectWriter writer;
+  private final int fetchSize;
+
+  public UserExporter(JdbcTemplate jdbc, PlatformTransactionManager txManager, ObjectMapper mapper,
+                      @Value("${users.export.fetch-size:500}") int fetchSize) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(txManager);
+    this.tx.setReadOnly(true);
+    // niet sluiten of flushen na elke user: dat bepalen we zelf per blok
+    this.writer = mapper.writerFor(User.class)
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.fetchSize = fetchSize;
+  }
+
+  // Schrijft alle users naar out, in dezelfde volgorde als GET /users
+  public long export(OutputStream out) throws IOException {
+    OutputStream buf = new BufferedOutputStream(out, 64 * 1024);
+    long[] count = {0};
+    try {
+      tx.executeWithoutResult(s -> jdbc.query(con -> {
+        var ps = con.prepareStatement("SELECT id, email, display_name, created_at FROM users ORDER BY created_at, id");
+        ps.setFetchSize(fetchSize);
+        return ps;
+      }, rs -> {
+        User u = UserLookup.ROW.mapRow(rs, 0);
+        try {
+          writer.writeValue(buf, u);
+          buf.write(NEWLINE);
+          if (++count[0] % fetchSize == 0) buf.flush();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    buf.flush();
+    return count[0];
+  }
+}
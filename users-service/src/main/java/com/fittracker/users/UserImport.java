@@ -0,0 +1,274 @@
+package com.fittracker.users;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// Bulk import van users (bv. een nieuwe gymketen met honderdduizenden leden), als CSV of NDJSON.
+//
+// Rijen worden één voor één gelezen en gevalideerd en meteen via COPY FROM STDIN naar een tijdelijke
+// staging tabel gestreamd; daarna zet één INSERT ... SELECT ... ON CONFLICT DO NOTHING ze in users.
+// Alles in één transactie: een fout halverwege (bv. kapotte JSON) laat users ongewijzigd.
+// Geheugen blijft constant: enkel de eerste max-rejects afgekeurde rijen worden bijgehouden.
+@Component
+public class UserImport {
+
+  // Afgekeurde rij; line = nummer van de record in het bestand (1 = eerste user, header niet meegeteld)
+  public record Reject(long line, String email, String reason) { }
+
+  // rejects bevat maximaal max-rejects items, rejected telt ze allemaal
+  public record Result(long received, long inserted, long rejected, List<Reject> rejects) { }
+
+  record Row(String email, String displayName) { }
+
+  static final int MAX_LENGTH = 255; // varchar(255) in users
+
+  static final String STAGING = """
+      CREATE TEMP TABLE users_import (
+        line bigint, id uuid, email text, email_normalized text, display_name text
+      ) ON COMMIT DROP""";
+
+  // Eerste voorkomen per email in het bestand wint; bestaande users (ook op hoofdletters na) worden overgeslagen
+  static final String MERGE = """
+      INSERT INTO users (id, email, email_normalized, display_name, created_at)
+      SELECT DISTINCT ON (email_normalized) id, email, email_normalized, display_name, now()
+      FROM users_import
+      ORDER BY email_normalized, line
+      ON CONFLICT DO NOTHING
+      """;
+
+  static final String DUPLICATES = """
+      SELECT i.line, i.email FROM users_import i
+      WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = i.id)
+      ORDER BY i.line
+      LIMIT ?
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final ObjectReader reader;
+  private final int maxRejects;
+
+  public UserImport(JdbcTemplate jdbc, PlatformTransactionManager txManager, ObjectMapper mapper,
+                    @Value("${users.import.max-rejects:1000}") int maxRejects) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(txManager);
+    this.reader = mapper.readerFor(Row.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    this.maxRejects = Math.max(0, maxRejects);
+  }
+
+  // CSV met header, kolommen email en displayName (of display_name), in eender welke volgorde
+  public Result importCsv(InputStream body) throws IOException {
+    return run(new CsvRows(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))));
+  }
+
+  // Eén JSON object per lijn: {"email": "...", "displayName": "..."}
+  public Result importNdjson(InputStream body) throws IOException {
+    try (MappingIterator<Row> it = reader.readValues(body)) {
+      return run(new Iterator<>() {
+        @Override public boolean hasNext() {
+          try { return it.hasNextValue(); } catch (IOException e) { throw invalid(e); }
+        }
+        @Override public Row next() {
+          try { return it.nextValue(); } catch (IOException e) { throw invalid(e); }
+        }
+      });
+    } catch (JsonProcessingException e) {
+      throw invalid(e);
+    }
+  }
+
+  private static IllegalArgumentException invalid(IOException e) {
+    String msg = (e instanceof JsonProcessingException jpe) ? jpe.getOriginalMessage() : e.getMessage();
+    return new IllegalArgumentException("invalid import payload: " + msg, e);
+  }
+
+  private Result run(Iterator<Row> rows) throws IOException {
+    try {
+      return tx.execute(s -> jdbc.execute((ConnectionCallback<Result>) con -> load(con, rows)));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Result load(Connection con, Iterator<Row> rows) throws SQLException {
+    jdbc.execute(STAGING);
+    List<Reject> rejects = new ArrayList<>();
+    long received = 0;
+    long invalid = 0;
+
+    CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI()
+        .copyIn("COPY users_import (line, id, email, email_normalized, display_name) FROM STDIN WITH (FORMAT csv)");
+    try {
+      StringBuilder buf = new StringBuilder(64 * 1024);
+      while (rows.hasNext()) {
+        Row row = rows.next();
+        long line = ++received;
+        String error = validate(row);
+        if (error != null) {
+          invalid++;
+          if (rejects.size() < maxRejects) rejects.add(new Reject(line, row == null ? null : row.email(), error));
+          continue;
+        }
+        String email = row.email().trim();
+        buf.append(line).append(',').append(UuidV7.next()).append(',');
+        csv(buf, email).append(',');
+        csv(buf, User.normalize(email)).append(',');
+        csv(buf, row.displayName().trim()).append('\n');
+        if (buf.length() >= 60 * 1024) flush(copy, buf);
+      }
+      flush(copy, buf);
+      copy.endCopy();
+    } finally {
+      if (copy.isActive()) copy.cancelCopy();
+    }
+
+    long inserted = jdbc.update(MERGE);
+    long duplicates = received - invalid - inserted;
+    if (duplicates > 0 && rejects.size() < maxRejects) {
+      jdbc.query(DUPLICATES, rs -> {
+        rejects.add(new Reject(rs.getLong(1), rs.getString(2), "email already exists"));
+      }, maxRejects - rejects.size());
+      rejects.sort((a, b) -> Long.compare(a.line(), b.line()));
+    }
+    return new Result(received, inserted, invalid + duplicates, rejects);
+  }
+
+  static String validate(Row row) {
+    if (row == null) return "empty row";
+    String email = row.email() == null ? "" : row.email().trim();
+    String name = row.displayName() == null ? "" : row.displayName().trim();
+    if (email.isEmpty()) return "email is required";
+    int at = email.indexOf('@');
+    if (at <= 0 || at == email.length() - 1 || email.chars().anyMatch(Character::isWhitespace)) return "email is invalid";
+    if (name.isEmpty()) return "displayName is required";
+    if (email.length() > MAX_LENGTH || name.length() > MAX_LENGTH) return "email and displayName are limited to " + MAX_LENGTH + " characters";
+    return null;
+  }
+
+  // Waarde als CSV veld voor COPY (altijd tussen quotes, quotes verdubbeld)
+  private static StringBuilder csv(StringBuilder buf, String value) {
+    return buf.append('"').append(value.replace("\"", "\"\"")).append('"');
+  }
+
+  private static void flush(CopyIn copy, StringBuilder buf) throws SQLException {
+    if (buf.isEmpty()) return;
+    byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+    copy.writeToCopy(bytes, 0, bytes.length);
+    buf.setLength(0);
+  }
+
+  // Minimale CSV reader (RFC 4180): velden tussen quotes mogen komma's, quotes ("") en newlines bevatten
+  static final class CsvRows implements Iterator<Row> {
+    private final BufferedReader in;
+    private final int emailCol;
+    private final int nameCol;
+    private List<String> next;
+
+    CsvRows(BufferedReader in) throws IOException {
+      this.in = in;
+      List<String> header = read();
+      if (header == null) throw new IllegalArgumentException("CSV header is required");
+      int email = -1;
+      int name = -1;
+      for (int i = 0; i < header.size(); i++) {
+        String h = header.get(i).trim().toLowerCase(Locale.ROOT);
+        if (h.equals("email")) email = i;
+        if (h.equals("displayname") || h.equals("display_name")) name = i;
+      }
+      if (email < 0 || name < 0) throw new IllegalArgumentException("CSV header must contain email and displayName");
+      this.emailCol = email;
+      this.nameCol = name;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Row next() {
+      if (next == null) throw new NoSuchElementException();
+      List<String> fields = next;
+      advance();
+      // lege lijn → null (wordt een reject i.p.v. een fout voor het hele bestand)
+      if (fields.size() == 1 && fields.get(0).isBlank()) return null;
+      return new Row(field(fields, emailCol), field(fields, nameCol));
+    }
+
+    private void advance() {
+      try {
+        next = read();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static String field(List<String> fields, int i) {
+      return i < fields.size() ? fields.get(i) : null;
+    }
+
+    // Eén record lezen, null aan het einde van het bestand
+    private List<String> read() throws IOException {
+      int c = in.read();
+      if (c == -1) return null;
+      List<String> fields = new ArrayList<>();
+      StringBuilder cur = new StringBuilder();
+      boolean quoted = false;
+      while (true) {
+        if (quoted) {
+          if (c == -1) throw new IllegalArgumentException("unterminated quoted CSV field");
+          if (c == '"') {
+            in.mark(1);
+            int n = in.read();
+            if (n == '"') {
+              cur.append('"');
+            } else {
+              quoted = false;
+              in.reset();
+            }
+          } else {
+            cur.append((char) c);
+          }
+        } else if (c == '"') {
+          quoted = true;
+        } else if (c == ',') {
+          fields.add(cur.toString());
+          cur.setLength(0);
+        } else if (c == '\n' || c == -1) {
+          break;
+        } else if (c != '\r') {
+          cur.append((char) c);
+        }
+        c = in.read();
+      }
+      fields.add(cur.toString());
+      return fields;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.fittracker.users;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+// Veel users tegelijk opzoeken op id en/of email (hoofdletterongevoelig) in één query (= ANY(array))
+// i.p.v. één GET /users/{id} per user.
+@Component
+public class UserLookup {
+
+  static final int MAX_KEYS = 1000;
+
+  static final String QUERY = """
+      SELECT id, email, display_name, created_at FROM users
+      WHERE id = ANY(?::uuid[]) OR email_normalized = ANY(?::text[])
+      """;
+
+  // Eén resultaat per gevraagde key, in dezelfde volgorde als de request.
+  // Precies één van id/email is ingevuld; user is null als found false is.
+  public record Result(UUID id, String email, boolean found, User user) { }
+
+  static final RowMapper<User> ROW = (rs, i) -> {
+    User u = new User();
+    u.setId(rs.getObject(1, UUID.class));
+    u.setEmail(rs.getString(2));
+    u.setDisplayName(rs.getString(3));
+    Timestamp created = rs.getTimestamp(4);
+    u.setCreatedAt(created == null ? null : created.toInstant());
+    return u;
+  };
+
+  private final JdbcTemplate jdbc;
+
+  public UserLookup(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  // Eerst alle ids, dan alle emails, elk in de gevraagde volgorde (dubbels blijven staan)
+  @Transactional(readOnly = true)
+  public List<Result> lookup(List<UUID> ids, List<String> emails) {
+    List<UUID> idKeys = (ids == null) ? List.of() : ids;
+    List<String> emailKeys = (emails == null) ? List.of() : emails;
+    if (idKeys.size() + emailKeys.size() > MAX_KEYS) {
+      throw new IllegalArgumentException("at most " + MAX_KEYS + " ids and emails per lookup");
+    }
+    if (idKeys.stream().anyMatch(Objects::isNull) || emailKeys.stream().anyMatch(Objects::isNull)) {
+      throw new IllegalArgumentException("ids and emails must not contain null");
+    }
+
+    Map<UUID, User> byId = new HashMap<>();
+    Map<String, User> byEmail = new HashMap<>();
+    if (!idKeys.isEmpty() || !emailKeys.isEmpty()) {
+      UUID[] idArray = new LinkedHashSet<>(idKeys).toArray(UUID[]::new);
+      String[] emailArray = emailKeys.stream().map(User::normalize).distinct().toArray(String[]::new);
+      List<User> rows = jdbc.query(QUERY, ps -> {
+        var con = ps.getConnection();
+        ps.setArray(1, con.createArrayOf("uuid", idArray));
+        ps.setArray(2, con.createArrayOf("text", emailArray));
+      }, ROW);
+      for (User u : rows) {
+        byId.put(u.getId(), u);
+        byEmail.put(User.normalize(u.getEmail()), u);
+      }
+    }
+
+    List<Result> res = new ArrayList<>(idKeys.size() + emailKeys.size());
+    for (UUID id : idKeys) {
+      User u = byId.get(id);
+      res.add(new Result(id, null, u != null, u));
+    }
+    for (String email : emailKeys) {
+      User u = byEmail.get(User.normalize(email));
+      res.add(new Result(null, email, u != null, u));
+    }
+    return res;
+  }
+}
@@ -0,0 +1,6 @@
+package com.fittracker.users;
+
+import java.util.List;
+
+// Eén pagina users + token voor de volgende pagina (null = laatste pagina)
+public record UserPage(List<User> items, String next) { }
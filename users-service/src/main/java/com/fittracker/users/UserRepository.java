@@ -1,9 +1,29 @@
 package com.fittracker.users;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
   Optional<User> findByEmail(String email);
+
+  // Hoofdletterongevoelig zoeken: de parameter moet al genormaliseerd zijn (User.normalize)
+  Optional<User> findByEmailNormalized(String emailNormalized);
+
+  // Keyset paginatie op (createdAt, id), gebruikt de index users_created_at_id_idx
+  @Query("select u from User u order by u.createdAt, u.id")
+  List<User> firstPage(Limit limit);
+
+  @Query("""
+      select u from User u
+      where u.createdAt > :createdAt or (u.createdAt = :createdAt and u.id > :id)
+      order by u.createdAt, u.id
+      """)
+  List<User> pageAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, Limit limit);
 }
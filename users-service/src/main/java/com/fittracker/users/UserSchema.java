@@ -0,0 +1,64 @@
+package com.fittracker.users;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Indexen en eenmalige migraties die Hibernate (ddl-auto: update) niet zelf doet.
+// Idempotent: mag bij elke start lopen.
+// Loopt bij het aanmaken van de bean (InitializingBean), dus vóór de webserver requests aanneemt:
+// zonder backfill vindt /users/resolve bestaande users niet en zouden er dubbels aangemaakt worden.
+// De EntityManagerFactory is een dependency zodat Hibernate de tabel en kolommen al heeft aangemaakt.
+@Component
+public class UserSchema implements InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(UserSchema.class);
+
+  // email_normalized invullen voor bestaande users (kolom + unieke index komen van Hibernate).
+  // Bestaan er users die enkel in hoofdletters verschillen, dan krijgt enkel de oudste de waarde;
+  // de andere blijven leeg en worden gelogd zodat ze manueel samengevoegd kunnen worden.
+  static final String BACKFILL = """
+      UPDATE users u SET email_normalized = n.norm
+      FROM (
+        SELECT DISTINCT ON (lower(trim(email))) id, lower(trim(email)) AS norm
+        FROM users
+        WHERE email IS NOT NULL
+        ORDER BY lower(trim(email)), created_at, id
+      ) n
+      WHERE u.id = n.id
+        AND u.email_normalized IS NULL
+        AND NOT EXISTS (SELECT 1 FROM users o WHERE o.email_normalized = n.norm)
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+
+  public UserSchema(JdbcTemplate jdbc, TransactionTemplate tx, EntityManagerFactory schemaReady) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    tx.executeWithoutResult(s -> {
+      // zoekindexen voor UserSearch: prefix (btree) en trigram (GIN) op naam en email
+      jdbc.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS users_display_name_prefix_idx ON users (lower(display_name) text_pattern_ops)");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS users_email_normalized_prefix_idx ON users (email_normalized text_pattern_ops)");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS users_display_name_trgm_idx ON users USING gin (lower(display_name) gin_trgm_ops)");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS users_email_normalized_trgm_idx ON users USING gin (email_normalized gin_trgm_ops)");
+
+      int updated = jdbc.update(BACKFILL);
+      if (updated > 0) log.info("backfilled email_normalized for {} users", updated);
+      Integer duplicates = jdbc.queryForObject(
+          "SELECT count(*) FROM users WHERE email_normalized IS NULL AND email IS NOT NULL", Integer.class);
+      if (duplicates != null && duplicates > 0) {
+        log.warn("{} users share an email with another user (case-insensitive) and have no email_normalized", duplicates);
+      }
+    });
+  }
+}
@@ -0,0 +1,62 @@
+package com.fittracker.users;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+
+// "Find a gym buddy": zoeken op displayName en email, voor autocomplete.
+// Ranking: eerst prefix matches (begint met q), dan op trigram similarity (pg_trgm), dan op naam.
+// - q korter dan 3 tekens: enkel prefix (btree text_pattern_ops index, trigrams hebben er niets aan)
+// - anders: prefix of gelijkaardig (GIN trigram index), zodat ook tikfouten en stukken van namen matchen
+// pg_trgm en de indexen worden aangemaakt door UserSchema, bij het opstarten vóór de eerste request
+// (zonder de indexen zou een zoekopdracht de hele users tabel scannen).
+@Component
+public class UserSearch {
+
+  static final int DEFAULT_LIMIT = 10;
+  static final int MAX_LIMIT = 50;
+
+  static final String PREFIX = """
+      SELECT id, email, display_name, created_at FROM users
+      WHERE lower(display_name) LIKE ? OR email_normalized LIKE ?
+      ORDER BY lower(display_name), id
+      LIMIT ?
+      """;
+
+  static final String FUZZY = """
+      SELECT id, email, display_name, created_at FROM users
+      WHERE lower(display_name) LIKE ? OR email_normalized LIKE ?
+         OR lower(display_name) % ? OR email_normalized % ?
+      ORDER BY (lower(display_name) LIKE ? OR email_normalized LIKE ?) DESC,
+               GREATEST(similarity(lower(display_name), ?), similarity(email_normalized, ?)) DESC,
+               lower(display_name), id
+      LIMIT ?
+      """;
+
+  private final JdbcTemplate jdbc;
+
+  public UserSearch(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  @Transactional(readOnly = true)
+  public List<User> search(String q, Integer limit) {
+    String term = (q == null) ? "" : q.trim().toLowerCase(Locale.ROOT);
+    if (term.isEmpty()) throw new IllegalArgumentException("q is required");
+    int size = (limit == null) ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+    String prefix = escapeLike(term) + "%";
+
+    if (term.length() < 3) {
+      return jdbc.query(PREFIX, UserLookup.ROW, prefix, prefix, size);
+    }
+    return jdbc.query(FUZZY, UserLookup.ROW, prefix, prefix, term, term, prefix, prefix, term, term, size);
+  }
+
+  // % en _ in de zoekterm letterlijk nemen
+  static String escapeLike(String s) {
+    return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
@@ -1,26 +1,53 @@
 package com.fittracker.users;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service  // Dit maakt er een Spring service van (business logica)
 public class UserService {
   private final UserRepository repo;
+  private final UserEmailCache emailCache;
 
   // Constructor injection van de repository
-  public UserService(UserRepository repo){ 
+  public UserService(UserRepository repo, UserEmailCache emailCache){ 
     this.repo = repo; 
+    this.emailCache = emailCache;
   }
 
-  // Alle users ophalen (of 1 user zoeken op email als filter is meegegeven)
+  static final int DEFAULT_LIMIT = 50;
+  static final int MAX_LIMIT = 500;
+
+  // 1 user zoeken op email (hoofdletterongevoelig): lijstje met 1 user of lege lijst
   public List<User> list(String email){
-    if(email != null && !email.isBlank()){
-      // probeer email te vinden, stop in lijstje of geef lege lijst terug
-      return repo.findByEmail(email).map(List::of).orElseGet(List::of);
+    return repo.findByEmailNormalized(User.normalize(email)).map(List::of).orElseGet(List::of);
+  }
+
+  // Enkel het user id voor een email, meestal rechtstreeks uit de cache
+  public Optional<UUID> resolve(String email){
+    return emailCache.resolve(email);
+  }
+
+  // Pagina van users, oudste eerst (keyset op createdAt + id i.p.v. alles in één keer)
+  // We vragen limit + 1 op: is er een extra rij, dan bestaat er een volgende pagina
+  public UserPage page(Integer limit, String cursor){
+    int size = (limit == null) ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+    Limit fetch = Limit.of(size + 1);
+
+    List<User> rows;
+    if (cursor == null || cursor.isBlank()) {
+      rows = repo.firstPage(fetch);
+    } else {
+      UserCursor c = UserCursor.decode(cursor);
+      rows = repo.pageAfter(c.createdAt(), c.id(), fetch);
     }
-    // geef gewoon alles
-    return repo.findAll();
+
+    if (rows.size() <= size) return new UserPage(rows, null);
+    List<User> items = rows.subList(0, size);
+    User last = items.get(size - 1);
+    return new UserPage(items, new UserCursor(last.getCreatedAt(), last.getId()).encode());
   }
 
   // Eén user ophalen op basis van UUID
@@ -28,6 +55,11 @@ public class UserService {
     return repo.findById(id).orElseThrow(); 
   }
 
+  // Zelfde als get, maar leeg i.p.v. een exception als de user niet bestaat
+  public Optional<User> find(UUID id){
+    return repo.findById(id);
+  }
+
   // Nieuwe user aanmaken
   public User create(User u){ 
     return repo.save(u); 
@@ -36,13 +68,19 @@ public class UserService {
   // User bijwerken
   public User update(UUID id, User patch){
     var cur = get(id); // Eerst de huidige user ophalen
+    var oldEmail = cur.getEmail();
     if(patch.getEmail()!=null)        cur.setEmail(patch.getEmail());
     if(patch.getDisplayName()!=null)  cur.setDisplayName(patch.getDisplayName());
-    return repo.save(cur);
+    var saved = repo.save(cur);
+    // oude email mag niet meer naar deze user wijzen
+    emailCache.invalidate(oldEmail);
+    return saved;
   }
 
-  // User verwijderen
+  // User verwijderen (en uit de email cache halen)
   public void delete(UUID id){ 
+    var email = repo.findById(id).map(User::getEmail).orElse(null);
     repo.deleteById(id); 
+    emailCache.invalidate(email);
   }
 }
@@ -0,0 +1,58 @@
+package com.fittracker.users;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserEmailCacheTest {
+
+  UserRepository repo = mock(UserRepository.class);
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  UserEmailCache cache = new UserEmailCache(repo, registry, Duration.ofMinutes(10), 1000);
+
+  @Test
+  void resolve_normalizesEmail_andHitsMemoryAfterFirstLookup() {
+    UUID id = UUID.randomUUID();
+    User u = new User();
+    u.setId(id);
+    when(repo.findByEmailNormalized("alice@example.com")).thenReturn(Optional.of(u));
+
+    assertEquals(Optional.of(id), cache.resolve("Alice@Example.com"));
+    assertEquals(Optional.of(id), cache.resolve("alice@example.com "));
+
+    // tweede keer uit de cache
+    verify(repo, times(1)).findByEmailNormalized("alice@example.com");
+    assertEquals(0.5, registry.get("users.email-cache.hit-ratio").gauge().value());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", UserEmailCache.NAME).tag("result", "hit").functionCounter().count());
+  }
+
+  @Test
+  void resolve_unknownEmail_isNotCached() {
+    when(repo.findByEmailNormalized("new@example.com")).thenReturn(Optional.empty());
+
+    assertEquals(Optional.empty(), cache.resolve("new@example.com"));
+    assertEquals(Optional.empty(), cache.resolve("new@example.com"));
+
+    // user kan intussen aangemaakt zijn → telkens opnieuw naar de DB
+    verify(repo, times(2)).findByEmailNormalized("new@example.com");
+  }
+
+  @Test
+  void invalidate_forcesNewLookup() {
+    User u = new User();
+    u.setId(UUID.randomUUID());
+    when(repo.findByEmailNormalized("alice@example.com")).thenReturn(Optional.of(u));
+
+    cache.resolve("alice@example.com");
+    cache.invalidate("ALICE@example.com");
+    cache.resolve("alice@example.com");
+
+    verify(repo, times(2)).findByEmailNormalized("alice@example.com");
+  }
+}
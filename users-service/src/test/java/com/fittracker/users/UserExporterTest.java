@@ -0,0 +1,61 @@
+package com.fittracker.users;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserExporterTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  @Test
+  void export_writesOneJsonLinePerRow_withFetchSizeInReadOnlyTransaction() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getObject(1, UUID.class)).thenAnswer(inv -> UUID.randomUUID());
+    when(rs.getString(2)).thenReturn("a@example.com");
+    when(rs.getString(3)).thenReturn("A");
+    when(rs.getTimestamp(4)).thenReturn(Timestamp.from(Instant.parse("2025-01-01T00:00:00Z")));
+
+    Connection con = mock(Connection.class);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    when(con.prepareStatement(anyString())).thenReturn(ps);
+    doAnswer(inv -> {
+      inv.getArgument(0, PreparedStatementCreator.class).createPreparedStatement(con);
+      RowCallbackHandler h = inv.getArgument(1);
+      for (int i = 0; i < 3; i++) h.processRow(rs);
+      return null;
+    }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+    var out = new ByteArrayOutputStream();
+    long count = new UserExporter(jdbc, txManager, mapper, 2).export(out);
+
+    // 3 rijen → 3 NDJSON lijnen
+    assertEquals(3, count);
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(3, lines.length);
+    assertEquals("a@example.com", mapper.readTree(lines[0]).get("email").asText());
+
+    // cursor: fetch size gezet en binnen een read-only transactie (anders haalt Postgres alles op)
+    verify(ps).setFetchSize(2);
+    verify(txManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+  }
+}
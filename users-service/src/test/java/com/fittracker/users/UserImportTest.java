@@ -0,0 +1,106 @@
+package com.fittracker.users;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserImportTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+  CopyIn copy = mock(CopyIn.class);
+  ByteArrayOutputStream copied = new ByteArrayOutputStream();
+  UserImport importer = new UserImport(jdbc, txManager, new ObjectMapper(), 1000);
+
+  @BeforeEach
+  void setUp() throws Exception {
+    Connection con = mock(Connection.class);
+    PGConnection pg = mock(PGConnection.class);
+    CopyManager copyApi = mock(CopyManager.class);
+    when(con.unwrap(PGConnection.class)).thenReturn(pg);
+    when(pg.getCopyAPI()).thenReturn(copyApi);
+    when(copyApi.copyIn(anyString())).thenReturn(copy);
+    doAnswer(inv -> {
+      copied.write(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2));
+      return null;
+    }).when(copy).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    when(jdbc.execute(any(ConnectionCallback.class)))
+        .thenAnswer(inv -> inv.getArgument(0, ConnectionCallback.class).doInConnection(con));
+  }
+
+  @Test
+  void importCsv_streamsValidRowsToCopy_andReportsRejects() throws Exception {
+    when(jdbc.update(UserImport.MERGE)).thenReturn(2);
+    String csv = """
+        displayName,email
+        "Smith, Alice",Alice@Example.com
+        Bob,not-an-email
+        "Carol \"\"C\"\"",carol@example.com
+        Dup,alice@example.com
+        """;
+    // rij 4 is een dubbele email, die komt terug uit de staging tabel
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong(1)).thenReturn(4L);
+    when(rs.getString(2)).thenReturn("alice@example.com");
+    doAnswer(inv -> {
+      inv.getArgument(1, RowCallbackHandler.class).processRow(rs);
+      return null;
+    }).when(jdbc).query(eq(UserImport.DUPLICATES), any(RowCallbackHandler.class), eq(999));
+
+    var res = importer.importCsv(stream(csv));
+
+    assertEquals(4, res.received());
+    assertEquals(2, res.inserted());
+    assertEquals(2, res.rejected());
+    assertEquals(new UserImport.Reject(2, "not-an-email", "email is invalid"), res.rejects().get(0));
+    assertEquals(new UserImport.Reject(4, "alice@example.com", "email already exists"), res.rejects().get(1));
+
+    // enkel geldige rijen gaan naar COPY, met genormaliseerde email en correct gequote velden
+    String[] lines = copied.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[0].startsWith("1,"));
+    assertTrue(lines[0].endsWith(",\"Alice@Example.com\",\"alice@example.com\",\"Smith, Alice\""));
+    assertTrue(lines[1].endsWith(",\"Carol \"\"C\"\"\""));
+    verify(copy).endCopy();
+    verify(jdbc).execute(UserImport.STAGING);
+  }
+
+  @Test
+  void importNdjson_parsesObjectsPerLine() throws Exception {
+    when(jdbc.update(UserImport.MERGE)).thenReturn(1);
+
+    var res = importer.importNdjson(stream("{\"email\":\"a@example.com\",\"displayName\":\"A\",\"extra\":1}\n{\"email\":\"b@example.com\"}\n"));
+
+    assertEquals(2, res.received());
+    assertEquals(1, res.inserted());
+    assertEquals(new UserImport.Reject(2, "b@example.com", "displayName is required"), res.rejects().get(0));
+    verify(jdbc, never()).query(eq(UserImport.DUPLICATES), any(RowCallbackHandler.class), any(Object[].class));
+  }
+
+  @Test
+  void importCsv_withoutRequiredHeader_throwsIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> importer.importCsv(stream("name,mail\nA,a@example.com\n")));
+    verifyNoInteractions(jdbc);
+  }
+
+  private static ByteArrayInputStream stream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+}
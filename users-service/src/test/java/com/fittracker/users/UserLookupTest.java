@@ -0,0 +1,61 @@
+package com.fittracker.users;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserLookupTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  UserLookup lookup = new UserLookup(jdbc);
+
+  @Test
+  void lookup_returnsResultsInRequestOrder_withNotFoundMarkers() {
+    User alice = user("alice@example.com");
+    User bob = user("bob@example.com");
+    UUID missing = UUID.randomUUID();
+    when(jdbc.query(eq(UserLookup.QUERY), any(PreparedStatementSetter.class), any(RowMapper.class)))
+        .thenReturn(List.of(bob, alice));
+
+    var res = lookup.lookup(List.of(alice.getId(), missing), List.of("nobody@example.com", "bob@example.com"));
+
+    // één query voor alles, antwoord in de volgorde van de request
+    verify(jdbc, times(1)).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+    assertEquals(4, res.size());
+    assertEquals(new UserLookup.Result(alice.getId(), null, true, alice), res.get(0));
+    assertEquals(new UserLookup.Result(missing, null, false, null), res.get(1));
+    assertEquals(new UserLookup.Result(null, "nobody@example.com", false, null), res.get(2));
+    assertEquals(new UserLookup.Result(null, "bob@example.com", true, bob), res.get(3));
+  }
+
+  @Test
+  void lookup_empty_doesNotQuery() {
+    assertEquals(List.of(), lookup.lookup(null, List.of()));
+    verifyNoInteractions(jdbc);
+  }
+
+  @Test
+  void lookup_tooManyKeys_throwsIllegalArgument() {
+    List<UUID> ids = new ArrayList<>(Collections.nCopies(UserLookup.MAX_KEYS, UUID.randomUUID()));
+    assertThrows(IllegalArgumentException.class, () -> lookup.lookup(ids, List.of("a@example.com")));
+    verifyNoInteractions(jdbc);
+  }
+
+  private static User user(String email) {
+    User u = new User();
+    u.setId(UUID.randomUUID());
+    u.setEmail(email);
+    u.setDisplayName(email);
+    return u;
+  }
+}
@@ -0,0 +1,48 @@
+package com.fittracker.users;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserSearchTest {
+
+  JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  UserSearch search = new UserSearch(jdbc);
+
+  @Test
+  void search_shortTerm_usesPrefixOnly() {
+    search.search(" Al ", null);
+
+    // minder dan 3 tekens → enkel prefix, genormaliseerd, standaard limit
+    verify(jdbc).query(eq(UserSearch.PREFIX), any(RowMapper.class), eq("al%"), eq("al%"), eq(UserSearch.DEFAULT_LIMIT));
+  }
+
+  @Test
+  void search_longerTerm_usesPrefixAndTrigrams_withCappedLimit() {
+    search.search("Alice", 1000);
+
+    verify(jdbc).query(eq(UserSearch.FUZZY), any(RowMapper.class),
+        eq("alice%"), eq("alice%"), eq("alice"), eq("alice"), eq("alice%"), eq("alice%"), eq("alice"), eq("alice"),
+        eq(UserSearch.MAX_LIMIT));
+  }
+
+  @Test
+  void search_escapesLikeWildcards() {
+    search.search("a_%", 5);
+
+    verify(jdbc).query(eq(UserSearch.FUZZY), any(RowMapper.class),
+        eq("a\\_\\%%"), eq("a\\_\\%%"), eq("a_%"), eq("a_%"), eq("a\\_\\%%"), eq("a\\_\\%%"), eq("a_%"), eq("a_%"), eq(5));
+  }
+
+  @Test
+  void search_blank_throwsIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> search.search("  ", 10));
+    verifyNoInteractions(jdbc);
+  }
+}
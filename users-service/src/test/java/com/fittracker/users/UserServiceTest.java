@@ -7,6 +7,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.time.Instant;
 import java.util.List;
@@ -23,6 +24,9 @@ class UserServiceTest {
   @Mock
   UserRepository repo;
 
+  @Mock
+  UserEmailCache emailCache;
+
   @InjectMocks
   UserService service;
 
@@ -40,44 +44,67 @@ class UserServiceTest {
   }
 
   @Test
-  void list_returnsAll_whenEmailNull() {
-    var u2 = new User();
-    u2.setId(UUID.randomUUID());
-    u2.setEmail("bob@example.com");
-    u2.setDisplayName("Bob");
+  void page_firstPage_returnsCursorWhenMoreRows() {
+    var u2 = user(Instant.parse("2025-01-02T00:00:00Z"));
+    var u3 = user(Instant.parse("2025-01-03T00:00:00Z"));
+    when(repo.firstPage(Limit.of(3))).thenReturn(List.of(u1, u2, u3));
+
+    var res = service.page(2, null);
+
+    // limit + 1 opgehaald → derde rij betekent dat er een volgende pagina is
+    assertEquals(List.of(u1, u2), res.items());
+    assertEquals(new UserCursor(u2.getCreatedAt(), u2.getId()), UserCursor.decode(res.next()));
+    verify(repo, never()).findAll();
+  }
+
+  @Test
+  void page_withCursor_continuesAfterLastRow() {
+    var c = new UserCursor(Instant.parse("2025-01-02T00:00:00Z"), UUID.randomUUID());
+    when(repo.pageAfter(c.createdAt(), c.id(), Limit.of(51))).thenReturn(List.of(u1));
 
-    when(repo.findAll()).thenReturn(List.of(u1, u2));
+    var res = service.page(null, c.encode());
+
+    // laatste pagina → geen next
+    assertEquals(List.of(u1), res.items());
+    assertNull(res.next());
+  }
 
-    var res = service.list(null);
+  @Test
+  void page_invalidCursor_throwsIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> service.page(10, "not-a-cursor"));
+  }
 
-    // als er geen email filter is → alles ophalen
-    assertEquals(2, res.size());
-    verify(repo).findAll();
-    verify(repo, never()).findByEmail(anyString());
+  private static User user(Instant createdAt) {
+    var u = new User();
+    u.setId(UUID.randomUUID());
+    u.setEmail(UUID.randomUUID() + "@example.com");
+    u.setDisplayName("User");
+    u.setCreatedAt(createdAt);
+    return u;
   }
 
   @Test
-  void list_returnsSingle_whenEmailProvidedAndFound() {
-    when(repo.findByEmail("alice@example.com")).thenReturn(Optional.of(u1));
+  void list_returnsSingle_whenEmailProvidedAndFound_caseInsensitive() {
+    when(repo.findByEmailNormalized("alice@example.com")).thenReturn(Optional.of(u1));
 
-    var res = service.list("alice@example.com");
+    var res = service.list(" Alice@Example.com ");
 
-    // als email gevonden wordt → lijst met 1 element
+    // email wordt genormaliseerd → lijst met 1 element
     assertEquals(1, res.size());
     assertEquals(u1, res.get(0));
-    verify(repo).findByEmail("alice@example.com");
+    verify(repo).findByEmailNormalized("alice@example.com");
     verify(repo, never()).findAll();
   }
 
   @Test
   void list_returnsEmpty_whenEmailProvidedAndNotFound() {
-    when(repo.findByEmail("nobody@example.com")).thenReturn(Optional.empty());
+    when(repo.findByEmailNormalized("nobody@example.com")).thenReturn(Optional.empty());
 
     var res = service.list("nobody@example.com");
 
     // als email niet bestaat → lege lijst
     assertTrue(res.isEmpty());
-    verify(repo).findByEmail("nobody@example.com");
+    verify(repo).findByEmailNormalized("nobody@example.com");
     verify(repo, never()).findAll();
   }
 
@@ -136,6 +163,8 @@ class UserServiceTest {
     var saved = captor.getValue();
     assertEquals(updated.getEmail(), saved.getEmail());
     assertEquals(updated.getDisplayName(), saved.getDisplayName());
+    // oude email mag niet meer uit de cache komen
+    verify(emailCache).invalidate("alice@example.com");
   }
 
   @Test
@@ -163,4 +192,14 @@ class UserServiceTest {
     // delete gewoon doorgeven aan repo
     verify(repo).deleteById(id1);
   }
+
+  @Test
+  void delete_invalidatesEmailCache() {
+    when(repo.findById(id1)).thenReturn(Optional.of(u1));
+
+    service.delete(id1);
+
+    verify(repo).deleteById(id1);
+    verify(emailCache).invalidate("alice@example.com");
+  }
 }
@@ -0,0 +1,32 @@
+package com.fittracker.workouts;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.NoSuchElementException;
+
+// Vertaalt de exceptions uit de service laag naar nette HTTP statuscodes i.p.v. 500
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+  // onbestaande workout → 404
+  @ExceptionHandler(NoSuchElementException.class)
+  public ProblemDetail notFound(NoSuchElementException e) {
+    return ProblemDetail.forStatus(HttpStatus.NOT_FOUND);
+  }
+
+  // versie van de workout is intussen gewijzigd → 409
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ProblemDetail conflict(OptimisticLockingFailureException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+  }
+
+  // ongeldige input (cursor, payload, ...) → 400
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ProblemDetail badRequest(IllegalArgumentException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+  }
+}
@@ -0,0 +1,137 @@
+package com.fittracker.workouts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Stuurt nieuwe PR's gebundeld naar progress-service, buiten de request van POST /workouts en de bulk import.
+// PersonalRecords zet ze hier klaar (per user en oefening enkel het maximum); om de zoveel ms
+// (of bij zoveel users) gaat alles in één POST /progress/best-lifts.
+// - progress-service traag of weg → de workout wordt gewoon opgeslagen, de batch blijft staan en
+//   wordt bij de volgende flush opnieuw geprobeerd (progress-service neemt per oefening het maximum)
+// - bij het stoppen wordt nog één keer geprobeerd; een crash verliest de PR's van de laatste interval
+@Component
+public class BestLiftsSender implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(BestLiftsSender.class);
+
+  private final ProgressClient progress;
+  private final Duration interval;
+  private final int maxUsers;
+
+  // bewaakt door synchronized (this)
+  private Map<UUID, Map<String, Double>> pending = new HashMap<>();
+
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private ScheduledExecutorService scheduler;
+  private volatile boolean running;
+
+  public BestLiftsSender(ProgressClient progress,
+                         @Value("${workouts.best-lifts.flush-interval:1s}") Duration interval,
+                         @Value("${workouts.best-lifts.max-users:500}") int maxUsers) {
+    this.progress = progress;
+    this.interval = interval;
+    this.maxUsers = Math.max(1, maxUsers);
+  }
+
+  // Nieuwe maxima klaarzetten; blokkeert nooit op progress-service
+  public void add(UUID userId, Map<String, Double> lifts) {
+    if (userId == null || lifts == null || lifts.isEmpty()) return;
+    int users;
+    synchronized (this) {
+      merge(userId, lifts);
+      users = pending.size();
+    }
+    if (users >= maxUsers) requestFlush();
+  }
+
+  // Alles wat klaarstaat in één request versturen; bij een fout terugzetten voor de volgende poging
+  void flush() {
+    flushRequested.set(false);
+    Map<UUID, Map<String, Double>> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) return;
+      batch = pending;
+      pending = new HashMap<>();
+    }
+    try {
+      progress.mergeBestLifts(batch);
+    } catch (RuntimeException e) {
+      log.warn("could not send best lifts of {} users, retrying later: {}", batch.size(), e.getMessage());
+      synchronized (this) {
+        batch.forEach(this::merge);
+      }
+    }
+  }
+
+  synchronized int pending() {
+    return pending.size();
+  }
+
+  private void merge(UUID userId, Map<String, Double> lifts) {
+    Map<String, Double> current = pending.computeIfAbsent(userId, k -> new LinkedHashMap<>());
+    lifts.forEach((exercise, weight) -> current.merge(exercise, weight, Math::max));
+  }
+
+  private void requestFlush() {
+    if (scheduler != null && flushRequested.compareAndSet(false, true)) {
+      scheduler.execute(this::flushQuietly);
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("best lifts flush failed: {}", e.getMessage());
+    }
+  }
+
+  @Override
+  public void start() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "best-lifts-sender");
+      t.setDaemon(true);
+      return t;
+    });
+    long ms = Math.max(1, interval.toMillis());
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, ms, ms, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushQuietly();
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  // Pas stoppen nadat de webserver geen requests meer aanneemt
+  @Override
+  public int getPhase() {
+    return 0;
+  }
+}
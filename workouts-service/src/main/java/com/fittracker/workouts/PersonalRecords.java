@@ -0,0 +1,75 @@
+package com.fittracker.workouts;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+// Detecteert persoonlijke records (zwaarste gewicht per oefening) bij het schrijven van workouts.
+// Per user staat er één compact document in "personal_records": { _id: userId, lifts: { bench: 100.0, ... } }.
+// Enkel de maxima die echt veranderen worden (gebundeld, via BestLiftsSender) naar progress-service gestuurd.
+@Component
+public class PersonalRecords {
+
+  static final String COLLECTION = "personal_records";
+
+  private final MongoTemplate mongo;
+  private final BestLiftsSender sender;
+
+  public PersonalRecords(MongoTemplate mongo, BestLiftsSender sender) {
+    this.mongo = mongo;
+    this.sender = sender;
+  }
+
+  // Aanroepen na create/update van een workout; zet nieuwe PR's klaar voor progress-service
+  // (geen HTTP call op de request zelf)
+  public Map<String, Double> detect(UUID userId, Collection<Workout.Exercise> exercises) {
+    Map<String, Double> changed = record(userId, exercises);
+    if (!changed.isEmpty()) sender.add(userId, changed);
+    return changed;
+  }
+
+  // Werkt de max-tabel bij met één atomische $max upsert en geeft enkel de gewijzigde maxima terug
+  Map<String, Double> record(UUID userId, Collection<Workout.Exercise> exercises) {
+    if (userId == null || exercises == null) return Map.of();
+
+    // eerst binnen de workout(s) zelf het maximum per oefening bepalen
+    Map<String, Double> best = new LinkedHashMap<>();
+    for (Workout.Exercise e : exercises) {
+      if (e == null || e.getName() == null || e.getName().isBlank() || e.getWeight() == null) continue;
+      best.merge(key(e.getName()), e.getWeight(), Math::max);
+    }
+    if (best.isEmpty()) return Map.of();
+
+    Update u = new Update();
+    best.forEach((k, w) -> u.max("lifts." + k, w));
+
+    // oude versie teruggeven zodat we kunnen zien welke maxima gestegen zijn
+    Document old = mongo.findAndModify(
+        new Query(Criteria.where("_id").is(userId)), u,
+        FindAndModifyOptions.options().upsert(true).returnNew(false),
+        Document.class, COLLECTION);
+    Document oldLifts = (old == null) ? null : old.get("lifts", Document.class);
+
+    Map<String, Double> changed = new LinkedHashMap<>();
+    best.forEach((k, w) -> {
+      Object prev = (oldLifts == null) ? null : oldLifts.get(k);
+      if (!(prev instanceof Number n) || n.doubleValue() < w) changed.put(k, w);
+    });
+    return changed;
+  }
+
+  // "Bench Press" en "bench press" zijn dezelfde oefening; '.' en '$' mogen niet in Mongo veldnamen
+  static String key(String name) {
+    return name.trim().toLowerCase(Locale.ROOT).replace('.', '_').replace('$', '_');
+  }
+}
@@ -0,0 +1,46 @@
+package com.fittracker.workouts;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+// HTTP client naar progress-service (rechtstreeks, niet via de gateway)
+@Component
+public class ProgressClient {
+
+  private final RestClient http;
+
+  public ProgressClient(RestClient.Builder builder,
+                        @Value("${progress.base-url:http://progress-service:8083}") String baseUrl,
+                        @Value("${progress.timeout:2s}") Duration timeout) {
+    SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+    factory.setConnectTimeout(timeout);
+    factory.setReadTimeout(timeout);
+    this.http = builder.baseUrl(baseUrl).requestFactory(factory).build();
+  }
+
+  // Nieuwe best lifts van veel users in één request; progress-service houdt per oefening het maximum bij.
+  // Gooit bij een fout zodat BestLiftsSender de batch later opnieuw kan sturen (maximum → herhalen is veilig).
+  public void mergeBestLifts(Map<UUID, Map<String, Double>> liftsPerUser) {
+    http.post()
+        .uri("/progress/best-lifts")
+        .body(liftsPerUser)
+        .retrieve()
+        .toBodilessEntity();
+  }
+
+  // Geaggregeerde workout-tellers (change stream) toepassen. Gooit bij een fout zodat de
+  // stream de batch opnieuw kan sturen; progress-service past een batchId maar één keer toe.
+  public void applyDeltas(String batchId, Map<UUID, Integer> deltas) {
+    http.post()
+        .uri("/progress/deltas")
+        .body(Map.of("batchId", batchId, "deltas", deltas))
+        .retrieve()
+        .toBodilessEntity();
+  }
+}
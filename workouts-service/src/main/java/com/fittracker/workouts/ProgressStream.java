@@ -0,0 +1,299 @@
+package com.fittracker.workouts;
+
+import com.mongodb.MongoServerException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.CollectionOptions.CollectionChangeStreamOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Houdt progress.workoutsCompleted bij op basis van de Mongo change stream van "workouts",
+// zodat clients na POST /workouts niet meer zelf PUT /progress/{userId}/increment moeten doen.
+//
+// Insert = +1, delete = -1 (userId uit de pre-image). Events worden per user opgeteld en per batch
+// doorgestuurd. Exactly-once effect via een "pending batch" in stream_offsets:
+//   1. batch (id + deltas + resume token) bewaren
+//   2. naar progress-service sturen; die slaat een batchId maar één keer toe
+//   3. token vastleggen en pending batch wissen
+// Na een crash wordt een pending batch met hetzelfde batchId opnieuw verstuurd.
+//
+// Vereist een replica set (lokaal: single-node replica set, zie docker-compose).
+@Component
+@ConditionalOnProperty(name = "workouts.progress-stream.enabled", havingValue = "true")
+public class ProgressStream implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(ProgressStream.class);
+
+  static final String OFFSETS = "stream_offsets";
+  static final String STREAM_ID = "workouts-progress";
+
+  // CappedPositionLost, InvalidResumeToken, ChangeStreamFatalError, ChangeStreamHistoryLost
+  static final Set<Integer> HISTORY_LOST_CODES = Set.of(136, 260, 280, 286);
+
+  private final MongoTemplate mongo;
+  private final ProgressClient progress;
+  private final int maxEvents;
+  private final Duration flushInterval;
+
+  // enkel gebruikt door de stream thread
+  private final Map<UUID, Integer> deltas = new LinkedHashMap<>();
+  private int pendingEvents;
+  private BsonDocument lastToken;
+  private long batchStartedAt;
+
+  private volatile boolean running;
+  private Thread worker;
+
+  public ProgressStream(MongoTemplate mongo, ProgressClient progress,
+                        @Value("${workouts.progress-stream.max-events:500}") int maxEvents,
+                        @Value("${workouts.progress-stream.flush-interval:1s}") Duration flushInterval) {
+    this.mongo = mongo;
+    this.progress = progress;
+    this.maxEvents = Math.max(1, maxEvents);
+    this.flushInterval = flushInterval;
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    worker = new Thread(this::run, "progress-stream");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+      try {
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void run() {
+    boolean preImages = false;
+    while (running) {
+      if (!preImages) preImages = enablePreImages();
+      try {
+        BsonDocument token = recover();
+        consume(token);
+      } catch (RuntimeException e) {
+        if (!running) break;
+        if (historyLost(e)) {
+          // opnieuw proberen met hetzelfde token lukt nooit meer: vanaf nu verder
+          reset(e);
+          continue;
+        }
+        // bv. Mongo tijdelijk weg: opnieuw beginnen vanaf het laatst vastgelegde token
+        log.warn("progress stream failed, restarting: {}", e.getMessage());
+        deltas.clear();
+        pendingEvents = 0;
+        sleep(flushInterval.toMillis());
+      }
+    }
+  }
+
+  private void consume(BsonDocument resumeAfter) {
+    MongoCollection<Document> workouts = mongo.getCollection(mongo.getCollectionName(Workout.class));
+    var watch = workouts
+        .watch(List.of(Aggregates.match(Filters.in("operationType", "insert", "delete"))))
+        .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+        .maxAwaitTime(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    if (resumeAfter != null) watch = watch.resumeAfter(resumeAfter);
+
+    try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = watch.cursor()) {
+      while (running) {
+        ChangeStreamDocument<Document> ev = cursor.tryNext();
+        if (ev != null) {
+          accept(ev.getOperationTypeString(), ev.getFullDocument(), ev.getFullDocumentBeforeChange(), ev.getResumeToken());
+        }
+        if (shouldFlush()) flush();
+      }
+    }
+  }
+
+  // Eén change event verwerken (package-private voor tests)
+  void accept(String operation, Document full, Document before, BsonDocument token) {
+    if (pendingEvents == 0) batchStartedAt = System.currentTimeMillis();
+    pendingEvents++;
+    lastToken = token;
+
+    if ("insert".equals(operation)) {
+      add(userId(full), 1);
+    } else if ("delete".equals(operation)) {
+      UUID user = userId(before);
+      if (user == null) log.warn("delete event without pre-image, progress not decremented");
+      add(user, -1);
+    }
+  }
+
+  boolean shouldFlush() {
+    if (pendingEvents == 0) return false;
+    return pendingEvents >= maxEvents || System.currentTimeMillis() - batchStartedAt >= flushInterval.toMillis();
+  }
+
+  // Batch doorsturen volgens het pending → send → commit protocol hierboven
+  void flush() {
+    if (pendingEvents == 0) return;
+    Map<UUID, Integer> batch = new LinkedHashMap<>(deltas);
+    batch.values().removeIf(d -> d == 0);
+    String batchId = UUID.randomUUID().toString();
+
+    savePending(batchId, batch, lastToken);
+    send(batchId, batch);
+    commit(lastToken);
+
+    deltas.clear();
+    pendingEvents = 0;
+  }
+
+  // Bij het opstarten: eventuele onafgewerkte batch afmaken, dan verder vanaf het vastgelegde token
+  BsonDocument recover() {
+    Document state = mongo.findById(STREAM_ID, Document.class, OFFSETS);
+    if (state == null) return null;
+
+    Document pending = state.get("pending", Document.class);
+    if (pending != null) {
+      Map<UUID, Integer> batch = new LinkedHashMap<>();
+      pending.get("deltas", Document.class).forEach((k, v) -> batch.put(UUID.fromString(k), ((Number) v).intValue()));
+      BsonDocument token = BsonDocument.parse(pending.getString("token"));
+      send(pending.getString("batchId"), batch);
+      commit(token);
+      return token;
+    }
+    String token = state.getString("token");
+    return token == null ? null : BsonDocument.parse(token);
+  }
+
+  // Resume token bestaat niet meer in de oplog (te lang gestopt, oplog te klein) of is ongeldig
+  static boolean historyLost(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof MongoServerException m && HISTORY_LOST_CODES.contains(m.getCode())) return true;
+    }
+    return false;
+  }
+
+  // Vastgelegd token en pending batch wissen zodat de stream bij "nu" herbegint.
+  // Een pending batch uit stream_offsets is op dit punt al verstuurd (recover() doet dat vóór het token
+  // gebruikt wordt); events die al in het geheugen zitten worden eerst nog doorgestuurd.
+  void reset(RuntimeException cause) {
+    if (pendingEvents > 0) flush();
+    Document state = mongo.findById(STREAM_ID, Document.class, OFFSETS);
+    mongo.remove(new Query(Criteria.where("_id").is(STREAM_ID)), OFFSETS);
+    deltas.clear();
+    pendingEvents = 0;
+    lastToken = null;
+    log.warn("progress stream resume token no longer usable ({}), restarting from now: workouts inserted or deleted "
+            + "after the last committed token {} are not counted in progress (last commit at {})",
+        cause.getMessage(), state == null ? null : state.getString("token"),
+        state == null ? null : state.get("committedAt"));
+  }
+
+  private void savePending(String batchId, Map<UUID, Integer> batch, BsonDocument token) {
+    Document d = new Document();
+    batch.forEach((k, v) -> d.put(k.toString(), v));
+    mongo.upsert(new Query(Criteria.where("_id").is(STREAM_ID)),
+        new Update().set("pending", new Document("batchId", batchId).append("deltas", d).append("token", token.toJson())),
+        OFFSETS);
+  }
+
+  private void commit(BsonDocument token) {
+    mongo.upsert(new Query(Criteria.where("_id").is(STREAM_ID)),
+        new Update().set("token", token.toJson()).set("committedAt", new Date()).unset("pending"),
+        OFFSETS);
+  }
+
+  // Blijft proberen tot progress-service de batch aanvaardt (batchId maakt herhalen veilig)
+  private void send(String batchId, Map<UUID, Integer> batch) {
+    if (batch.isEmpty()) return;
+    long backoff = 500;
+    while (true) {
+      try {
+        progress.applyDeltas(batchId, batch);
+        return;
+      } catch (RuntimeException e) {
+        if (!running) throw e;
+        log.warn("progress-service unavailable for batch {}, retrying: {}", batchId, e.getMessage());
+        sleep(backoff);
+        backoff = Math.min(backoff * 2, 30_000);
+      }
+    }
+  }
+
+  private void add(UUID user, int delta) {
+    if (user != null) deltas.merge(user, delta, Integer::sum);
+  }
+
+  private static UUID userId(Document doc) {
+    if (doc == null) return null;
+    Object v = doc.get("userId");
+    return (v instanceof UUID u) ? u : null;
+  }
+
+  // Pre-images aanzetten: zonder weet een delete niet van welke user de workout was.
+  // Op een lege database bestaat de collectie nog niet (WorkoutIndexes loopt pas na het starten):
+  // dan meteen aanmaken mét pre-images i.p.v. een collMod die op NamespaceNotFound faalt.
+  // false → wordt opnieuw geprobeerd bij de volgende herstart van de stream.
+  boolean enablePreImages() {
+    String name = mongo.getCollectionName(Workout.class);
+    try {
+      if (!mongo.collectionExists(name)) {
+        try {
+          mongo.createCollection(name, CollectionOptions.empty()
+              .changeStream(CollectionChangeStreamOptions.preAndPostImages(true)));
+          return true;
+        } catch (RuntimeException e) {
+          // intussen toch aangemaakt (bv. door de eerste insert): dan collMod zoals voor een bestaande
+          log.debug("could not create workouts collection, trying collMod: {}", e.getMessage());
+        }
+      }
+      mongo.executeCommand(new Document("collMod", name)
+          .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+      return true;
+    } catch (RuntimeException e) {
+      log.warn("could not enable pre-images on workouts (deletes will not decrement progress): {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
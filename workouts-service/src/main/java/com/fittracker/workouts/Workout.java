@@ -21,6 +21,9 @@ public class Workout {
   // Lijst met oefeningen die bij deze workout horen
   private List<Exercise> exercises;
 
+  // Optioneel versienummer, +1 bij elke update (optimistic concurrency via PATCH/PUT)
+  private Long version;
+
   // Nested class om 1 oefening te beschrijven
   public static class Exercise {
     private String name;   // naam van de oefening
@@ -56,4 +59,7 @@ public class Workout {
 
   public List<Exercise> getExercises(){ return exercises; }
   public void setExercises(List<Exercise> exercises){ this.exercises = exercises; }
+
+  public Long getVersion(){ return version; }
+  public void setVersion(Long version){ this.version = version; }
 }
@@ -0,0 +1,42 @@
+package com.fittracker.workouts;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Begrensde read-through cache voor losse workouts (GET /workouts/{id}).
+// Workouts worden zelden aangepast, dus de meeste reads hoeven Mongo niet te raken.
+// Hit/miss/eviction tellers staan op /actuator/metrics/cache.* (cache=workouts).
+@Component
+public class WorkoutCache {
+
+  private final Cache<String, Workout> cache;
+
+  public WorkoutCache(MeterRegistry registry,
+                      @Value("${workouts.cache.max-size:10000}") long maxSize,
+                      @Value("${workouts.cache.ttl:10m}") Duration ttl) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, cache, "workouts");
+  }
+
+  // Geeft de gecachte workout terug of laadt hem via loader; null (niet gevonden) wordt niet gecachet
+  public Workout get(String id, Function<String, Workout> loader) {
+    return cache.get(id, loader);
+  }
+
+  // Na elke update/delete: wacht op een eventuele lopende load van dezelfde key,
+  // zodat er nooit een oude versie achterblijft
+  public void invalidate(String id) {
+    cache.invalidate(id);
+  }
+}
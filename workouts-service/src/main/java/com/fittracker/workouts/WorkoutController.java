@@ -1,8 +1,12 @@
 package com.fittracker.workouts;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -11,73 +15,99 @@ import java.util.UUID;
 @RequestMapping("/workouts") // Alle endpoints van deze controller starten met /workouts
 public class WorkoutController {
 
-  private final WorkoutRepo repo;
+  // user id van de ingelogde gebruiker, gezet door de gateway
+  static final String USER_HEADER = "X-User-Id";
 
-  // Repo wordt via dependency injection binnengehaald
-  public WorkoutController(WorkoutRepo repo) {
-    this.repo = repo;
+  private final WorkoutService service;
+  private final WorkoutExporter exporter;
+  private final WorkoutIngest ingest;
+  private final WorkoutStats stats;
+
+  // Service + helpers worden via dependency injection binnengehaald
+  public WorkoutController(WorkoutService service,
+                           WorkoutExporter exporter, WorkoutIngest ingest, WorkoutStats stats) {
+    this.service = service;
+    this.exporter = exporter;
+    this.ingest = ingest;
+    this.stats = stats;
   }
 
-  // lijst van workouts ophalen (optioneel gefilterd op userId of datum)
+  // pagina van workouts ophalen (optioneel gefilterd op userId en/of datum)
+  // zonder userId via de gateway → workouts van de ingelogde user (X-User-Id)
+  // volgende pagina: ?cursor=<next uit het vorige antwoord>
   @GetMapping
-  public List<Workout> list(
+  public WorkoutPage list(
       @RequestParam(required = false) UUID userId,
+      @RequestHeader(value = USER_HEADER, required = false) UUID currentUser,
       @RequestParam(required = false) Instant from,
-      @RequestParam(required = false) Instant to
+      @RequestParam(required = false) Instant to,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor
   ) {
-    // Als er geen filters zijn -> alles teruggeven
-    if (userId == null && from == null && to == null) {
-      return repo.findAll();
-    }
-
-    // Alleen filteren op userId
-    if (userId != null && from == null && to == null) {
-      return repo.findByUserId(userId);
-    }
+    return service.list(userId != null ? userId : currentUser, from, to, limit, cursor);
+  }
 
-    // Alleen filteren op datums (voor alle users)
-    if (userId == null) {
-      if (from != null && to != null) return repo.findByDateBetween(from, to);
-      if (from != null)               return repo.findByDateGreaterThanEqual(from);
-      /* to != null */                return repo.findByDateLessThanEqual(to);
-    }
+  // alle workouts (optioneel gefilterd) streamen als NDJSON, voor export naar het data warehouse
+  // het antwoord wordt lijn per lijn geschreven terwijl de Mongo cursor verder leest
+  @GetMapping(value = "/export", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestParam(required = false) UUID userId,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to
+  ) {
+    StreamingResponseBody body = out -> exporter.export(userId, from, to, out);
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+  }
 
-    // Zowel userId + datums
-    if (from != null && to != null)  return repo.findByUserIdAndDateBetween(userId, from, to);
-    if (from != null)                return repo.findByUserIdAndDateGreaterThanEqual(userId, from);
-    /* to != null */                 return repo.findByUserIdAndDateLessThanEqual(userId, to);
+  // trainingsstatistieken per ISO week, maand of oefening (berekend in Mongo)
+  @GetMapping("/stats")
+  public List<WorkoutStats.Row> stats(
+      @RequestParam(required = false) UUID userId,
+      @RequestHeader(value = USER_HEADER, required = false) UUID currentUser,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to,
+      @RequestParam(defaultValue = "week") String groupBy
+  ) {
+    return stats.stats(userId != null ? userId : currentUser, from, to, WorkoutStats.GroupBy.parse(groupBy));
   }
 
   // specifieke workout ophalen
   @GetMapping("/{id}")
   public Workout get(@PathVariable String id) {
-    return repo.findById(id).orElseThrow(); // geeft 404 als niet gevonden
+    return service.get(id); // uit cache of Mongo, geeft 404 als niet gevonden
   }
 
-  // nieuwe workout aanmaken
+  // nieuwe workout aanmaken; zonder userId in de body → de ingelogde user (X-User-Id)
   @PostMapping
-  public Workout create(@RequestBody Workout w) {
-    w.setId(null); // Id leegmaken zodat Mongo er zelf één genereert
-    return repo.save(w);
+  public Workout create(@RequestBody Workout w,
+                        @RequestHeader(value = USER_HEADER, required = false) UUID currentUser) {
+    if (w.getUserId() == null) w.setUserId(currentUser);
+    return service.create(w); // Mongo genereert zelf het id
   }
 
-  // bestaande workout updaten
+  // veel workouts in één keer aanmaken (JSON array of NDJSON), geeft resultaat per item terug
+  @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+  public WorkoutIngest.Result batch(InputStream body) throws IOException {
+    return ingest.ingest(body);
+  }
+
+  // bestaande workout updaten (enkel velden die in de request aanwezig zijn)
   @PutMapping("/{id}")
   public Workout update(@PathVariable String id, @RequestBody Workout w) {
-    var cur = repo.findById(id).orElseThrow(); // huidige versie ophalen
-
-    // Enkel overschrijven wat in de request aanwezig is
-    if (w.getDate() != null)      cur.setDate(w.getDate());
-    if (w.getExercises() != null) cur.setExercises(w.getExercises());
-    if (w.getUserId() != null)    cur.setUserId(w.getUserId());
+    return service.update(id, w);
+  }
 
-    return repo.save(cur); // bewaren in de database
+  // gedeeltelijke update: velden zetten, één oefening toevoegen/verwijderen,
+  // optioneel met "version" voor optimistic concurrency (409 bij conflict)
+  @PatchMapping("/{id}")
+  public Workout patch(@PathVariable String id, @RequestBody WorkoutPatch p) {
+    return service.patch(id, p);
   }
 
   // workout verwijderen
   @DeleteMapping("/{id}")
   public ResponseEntity<Void> delete(@PathVariable String id) {
-    repo.deleteById(id);
+    service.delete(id); // ook uit de cache halen
     return ResponseEntity.noContent().build(); // geeft 204 No Content terug
   }
 }
@@ -0,0 +1,30 @@
+package com.fittracker.workouts;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+// Keyset cursor voor paginatie: positie = (date, id) van de laatste workout op de vorige pagina
+// Als token geserialiseerd naar "epochMillis:id" in base64url, zodat clients het niet hoeven te begrijpen.
+// Workouts zonder datum staan achteraan; hun cursor is ":id" (date == null).
+public record WorkoutCursor(Instant date, String id) {
+
+  public String encode() {
+    String raw = (date == null ? "" : String.valueOf(date.toEpochMilli())) + ":" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static WorkoutCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int sep = raw.indexOf(':');
+      String millis = raw.substring(0, sep);
+      Instant date = millis.isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(millis));
+      String id = raw.substring(sep + 1);
+      if (id.isEmpty()) throw new IllegalArgumentException("empty id");
+      return new WorkoutCursor(date, id);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("invalid cursor", e);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.fittracker.workouts;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Exporteert workouts als NDJSON (één JSON-object per lijn) rechtstreeks vanuit een Mongo cursor.
+// Er staat nooit meer dan één cursor-batch in het geheugen: we lezen pas verder als de vorige
+// documenten naar de client geschreven zijn. Een trage client blokkeert dus de write,
+// en daarmee ook het ophalen van de volgende batch (natuurlijke backpressure via TCP).
+@Component
+public class WorkoutExporter {
+
+  private static final byte[] NEWLINE = {'\n'};
+
+  private final MongoTemplate mongo;
+  private final ObjectWriter writer;
+  private final int batchSize;
+
+  public WorkoutExporter(MongoTemplate mongo, ObjectMapper mapper,
+                         @Value("${workouts.export.batch-size:500}") int batchSize) {
+    this.mongo = mongo;
+    // niet sluiten of flushen na elk document: dat bepalen we zelf per batch
+    this.writer = mapper.writerFor(Workout.class)
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.batchSize = batchSize;
+  }
+
+  // Schrijft alle workouts die aan de filters voldoen naar out, gesorteerd zoals GET /workouts
+  public long export(UUID userId, Instant from, Instant to, OutputStream out) throws IOException {
+    Query q = WorkoutService.query(WorkoutService.filters(userId, from, to)).cursorBatchSize(batchSize);
+
+    long count = 0;
+    // begrensde buffer; flushen na elke cursor-batch zodat de client continu data krijgt
+    OutputStream buf = new BufferedOutputStream(out, 64 * 1024);
+    try (Stream<Workout> cursor = mongo.stream(q, Workout.class)) {
+      var it = cursor.iterator();
+      while (it.hasNext()) {
+        writer.writeValue(buf, it.next());
+        buf.write(NEWLINE);
+        if (++count % batchSize == 0) buf.flush();
+      }
+    }
+    buf.flush();
+    return count;
+  }
+}
@@ -0,0 +1,44 @@
+package com.fittracker.workouts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+// Maakt bij het opstarten de indexen aan die WorkoutService nodig heeft en controleert ze.
+// Spring Boot zet auto-index-creation standaard uit, daarom doen we het hier expliciet.
+@Component
+public class WorkoutIndexes implements ApplicationRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(WorkoutIndexes.class);
+
+  static final String USER_DATE = "userId_1_date_-1";
+
+  private final MongoTemplate mongo;
+
+  public WorkoutIndexes(MongoTemplate mongo) {
+    this.mongo = mongo;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    IndexOperations ops = mongo.indexOps(Workout.class);
+
+    // {userId:1, date:-1}: dekt filter op user + datumrange + sortering op datum
+    ops.ensureIndex(new Index()
+        .on("userId", Sort.Direction.ASC)
+        .on("date", Sort.Direction.DESC)
+        .named(USER_DATE));
+
+    boolean present = ops.getIndexInfo().stream().anyMatch(i -> USER_DATE.equals(i.getName()));
+    if (!present) {
+      throw new IllegalStateException("index " + USER_DATE + " missing on workouts collection");
+    }
+    log.info("workouts index {} ok", USER_DATE);
+  }
+}
@@ -0,0 +1,139 @@
+package com.fittracker.workouts;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Bulk import van workouts (bv. sync van wearables).
+// Leest een JSON array of NDJSON stream element per element, valideert elk item
+// en schrijft per chunk met één unordered bulk insert i.p.v. één save per workout.
+@Component
+public class WorkoutIngest {
+
+  // Resultaat per item, in dezelfde volgorde als de input (error == null → opgeslagen)
+  public record Item(int index, String id, String error) { }
+
+  public record Result(int inserted, int failed, List<Item> items) { }
+
+  private final MongoTemplate mongo;
+  private final PersonalRecords records;
+  private final ObjectReader reader;
+  private final int chunkSize;
+
+  public WorkoutIngest(MongoTemplate mongo, PersonalRecords records, ObjectMapper mapper,
+                       @Value("${workouts.batch.chunk-size:500}") int chunkSize) {
+    this.mongo = mongo;
+    this.records = records;
+    this.reader = mapper.readerFor(Workout.class);
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  // Werkt voor zowel een JSON array ([{...},{...}]) als NDJSON ({...}\n{...})
+  // Let op: bij kapotte JSON halverwege blijven de reeds geschreven chunks bewaard
+  public Result ingest(InputStream body) throws IOException {
+    try (MappingIterator<Workout> it = reader.readValues(body)) {
+      return ingest(new Iterator<>() {
+        @Override public boolean hasNext() {
+          try { return it.hasNextValue(); } catch (IOException e) { throw invalid(e); }
+        }
+        @Override public Workout next() {
+          try { return it.nextValue(); } catch (IOException e) { throw invalid(e); }
+        }
+      });
+    } catch (JsonProcessingException e) {
+      throw invalid(e);
+    }
+  }
+
+  private static IllegalArgumentException invalid(IOException e) {
+    String msg = (e instanceof JsonProcessingException jpe) ? jpe.getOriginalMessage() : e.getMessage();
+    return new IllegalArgumentException("invalid workout payload: " + msg, e);
+  }
+
+  Result ingest(Iterator<Workout> workouts) {
+    List<Item> items = new ArrayList<>();
+    List<Workout> chunk = new ArrayList<>(chunkSize);
+    List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+
+    int index = 0;
+    while (workouts.hasNext()) {
+      Workout w = workouts.next();
+      String error = validate(w);
+      if (error != null) {
+        items.add(new Item(index++, null, error));
+        continue;
+      }
+      // id vooraf zetten: dan kennen we het id per item, ook bij een gedeeltelijk mislukte bulk
+      w.setId(new ObjectId().toHexString());
+      w.setVersion(0L);
+      chunk.add(w);
+      chunkIndexes.add(index);
+      items.add(null); // plaats reserveren, wordt ingevuld na de flush
+      index++;
+
+      if (chunk.size() >= chunkSize) flush(chunk, chunkIndexes, items);
+    }
+    if (!chunk.isEmpty()) flush(chunk, chunkIndexes, items);
+
+    int failed = (int) items.stream().filter(i -> i.error() != null).count();
+    return new Result(items.size() - failed, failed, items);
+  }
+
+  // Eén unordered bulk insert: Mongo gaat door na een fout, dus één slecht document
+  // blokkeert de rest van de chunk niet
+  private void flush(List<Workout> chunk, List<Integer> chunkIndexes, List<Item> items) {
+    String[] errors = new String[chunk.size()];
+    try {
+      mongo.bulkOps(BulkMode.UNORDERED, Workout.class).insert(chunk).execute();
+    } catch (BulkOperationException e) {
+      for (BulkWriteError err : e.getErrors()) {
+        errors[err.getIndex()] = err.getMessage();
+      }
+    }
+    // oefeningen van de opgeslagen workouts per user bundelen: één PR-check per user per chunk
+    Map<UUID, List<Workout.Exercise>> perUser = new LinkedHashMap<>();
+    for (int i = 0; i < chunk.size(); i++) {
+      int idx = chunkIndexes.get(i);
+      Workout w = chunk.get(i);
+      items.set(idx, new Item(idx, errors[i] == null ? w.getId() : null, errors[i]));
+      if (errors[i] == null && w.getExercises() != null) {
+        perUser.computeIfAbsent(w.getUserId(), k -> new ArrayList<>()).addAll(w.getExercises());
+      }
+    }
+    perUser.forEach(records::detect);
+    chunk.clear();
+    chunkIndexes.clear();
+  }
+
+  // Minimale checks, dezelfde regels als een gewone POST zou moeten afdwingen
+  static String validate(Workout w) {
+    if (w == null)              return "workout is required";
+    if (w.getUserId() == null)  return "userId is required";
+    if (w.getDate() == null)    return "date is required";
+    if (w.getExercises() != null) {
+      for (Workout.Exercise e : w.getExercises()) {
+        if (e == null || e.getName() == null || e.getName().isBlank()) return "exercise name is required";
+        if (e.getSets() < 0 || e.getReps() < 0)                        return "sets and reps must be >= 0";
+        if (e.getWeight() != null && e.getWeight() < 0)                return "weight must be >= 0";
+      }
+    }
+    return null;
+  }
+}
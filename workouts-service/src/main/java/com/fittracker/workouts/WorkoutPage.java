@@ -0,0 +1,6 @@
+package com.fittracker.workouts;
+
+import java.util.List;
+
+// Eén pagina workouts + token voor de volgende pagina (null = laatste pagina)
+public record WorkoutPage(List<Workout> items, String next) { }
@@ -0,0 +1,51 @@
+package com.fittracker.workouts;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Body van PATCH /workouts/{id}: enkel de velden die niet null zijn worden aangepast
+public class WorkoutPatch {
+
+  private Instant date;
+  private UUID userId;
+
+  // volledige lijst vervangen ...
+  private List<Workout.Exercise> exercises;
+  // ... of één oefening toevoegen / verwijderen (op naam; enkel de eerste met die naam)
+  private Workout.Exercise addExercise;
+  private String removeExercise;
+
+  // verwachte versie; als die niet meer klopt → 409 Conflict
+  private Long version;
+
+  public WorkoutPatch() {}
+
+  // PUT body (volledige Workout) omzetten naar een patch met dezelfde "non-null" regels
+  public static WorkoutPatch from(Workout w) {
+    WorkoutPatch p = new WorkoutPatch();
+    p.setDate(w.getDate());
+    p.setUserId(w.getUserId());
+    p.setExercises(w.getExercises());
+    p.setVersion(w.getVersion());
+    return p;
+  }
+
+  public Instant getDate(){ return date; }
+  public void setDate(Instant date){ this.date = date; }
+
+  public UUID getUserId(){ return userId; }
+  public void setUserId(UUID userId){ this.userId = userId; }
+
+  public List<Workout.Exercise> getExercises(){ return exercises; }
+  public void setExercises(List<Workout.Exercise> exercises){ this.exercises = exercises; }
+
+  public Workout.Exercise getAddExercise(){ return addExercise; }
+  public void setAddExercise(Workout.Exercise addExercise){ this.addExercise = addExercise; }
+
+  public String getRemoveExercise(){ return removeExercise; }
+  public void setRemoveExercise(String removeExercise){ this.removeExercise = removeExercise; }
+
+  public Long getVersion(){ return version; }
+  public void setVersion(Long version){ this.version = version; }
+}
@@ -1,5 +1,16 @@
 package com.fittracker.workouts;
 
+import org.bson.Document;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -11,56 +22,173 @@ import java.util.UUID;
 @Service
 public class WorkoutService {
 
+  static final int DEFAULT_LIMIT = 50;
+  static final int MAX_LIMIT = 500;
+
   private final WorkoutRepo repo;
+  private final MongoTemplate mongo;
+  private final WorkoutCache cache;
+  private final PersonalRecords records;
 
-  public WorkoutService(WorkoutRepo repo) {
+  public WorkoutService(WorkoutRepo repo, MongoTemplate mongo, WorkoutCache cache, PersonalRecords records) {
     this.repo = repo;
+    this.mongo = mongo;
+    this.cache = cache;
+    this.records = records;
   }
 
+  // Eén pagina workouts, nieuwste eerst. Alle filters gaan als query naar Mongo
+  // (gebruikt de {userId:1, date:-1} index), paginatie via keyset cursor i.p.v. skip/offset.
+  public WorkoutPage list(UUID userId, Instant from, Instant to, Integer limit, String cursor) {
+    int size = (limit == null) ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+
+    List<Criteria> filters = filters(userId, from, to);
+    if (cursor != null && !cursor.isBlank()) {
+      WorkoutCursor c = WorkoutCursor.decode(cursor);
+      filters.add(after(c));
+    }
 
-  public List<Workout> list(UUID userId, Instant from, Instant to) {
-    List<Workout> all = repo.findAll();
+    // één extra document ophalen om te weten of er nog een volgende pagina is
+    Query q = query(filters).limit(size + 1);
+    List<Workout> items = new ArrayList<>(mongo.find(q, Workout.class));
 
-    //  alles terug
-    if (userId == null && from == null && to == null) {
-      return all;
+    String next = null;
+    if (items.size() > size) {
+      items = items.subList(0, size);
+      Workout last = items.get(size - 1);
+      next = new WorkoutCursor(last.getDate(), last.getId()).encode();
     }
+    return new WorkoutPage(items, next);
+  }
 
-    List<Workout> out = new ArrayList<>();
-    for (Workout w : all) {
-      // user filter
-      if (userId != null) {
-        if (w.getUserId() == null || !userId.equals(w.getUserId())) continue;
-      }
-      // daterange filter
-      if (from != null && to != null) {
-        Instant d = w.getDate();
-        if (d == null) continue;
-        if (d.isBefore(from) || d.isAfter(to)) continue;
-      }
-      out.add(w);
+  // Alles "na" de cursor in sorteervolgorde (date desc, id desc). Mongo sorteert null/ontbrekende
+  // datums achteraan bij desc; $lt matcht die niet, dus ze krijgen een eigen tak.
+  static Criteria after(WorkoutCursor c) {
+    if (c.date() == null) {
+      return new Criteria().andOperator(Criteria.where("date").is(null), Criteria.where("id").lt(c.id()));
     }
+    return new Criteria().orOperator(
+        Criteria.where("date").lt(c.date()),
+        new Criteria().andOperator(Criteria.where("date").is(c.date()), Criteria.where("id").lt(c.id())),
+        Criteria.where("date").is(null));
+  }
+
+  // Filters vertalen naar Mongo criteria (inclusief grenzen, zoals de oude repo-methodes)
+  static List<Criteria> filters(UUID userId, Instant from, Instant to) {
+    List<Criteria> out = new ArrayList<>();
+    if (userId != null) out.add(Criteria.where("userId").is(userId));
+    if (from != null && to != null) out.add(Criteria.where("date").gte(from).lte(to));
+    else if (from != null)          out.add(Criteria.where("date").gte(from));
+    else if (to != null)            out.add(Criteria.where("date").lte(to));
     return out;
   }
 
+  // Query met de filters + vaste sortering die overeenkomt met de compound index
+  static Query query(List<Criteria> filters) {
+    Query q = filters.isEmpty() ? new Query() : new Query(new Criteria().andOperator(filters));
+    return q.with(Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id")));
+  }
+
+  // eerst in de cache kijken, enkel bij een miss naar Mongo
   public Workout get(String id) {
-    return repo.findById(id).orElseThrow(NoSuchElementException::new);
+    Workout w = cache.get(id, key -> repo.findById(key).orElse(null));
+    if (w == null) throw new NoSuchElementException();
+    return w;
   }
 
   public Workout create(Workout w) {
     w.setId(null);               // laat MongoDB een id genereren
-    return repo.save(w);
+    w.setVersion(0L);
+    Workout saved = repo.save(w);
+    records.detect(saved.getUserId(), saved.getExercises());
+    return saved;
   }
 
+  // PUT: zelfde regels als vroeger (enkel non-null velden), maar atomisch via patch
   public Workout update(String id, Workout patch) {
-    Workout cur = repo.findById(id).orElseThrow(NoSuchElementException::new);
-    if (patch.getDate() != null)      cur.setDate(patch.getDate());
-    if (patch.getExercises() != null) cur.setExercises(patch.getExercises());
-    if (patch.getUserId() != null)    cur.setUserId(patch.getUserId());
-    return repo.save(cur);
+    return patch(id, WorkoutPatch.from(patch));
+  }
+
+  // Eén atomische findAndModify i.p.v. findById + save:
+  // één round trip, enkel de gewijzigde velden gaan over de lijn, en geen lost updates
+  public Workout patch(String id, WorkoutPatch p) {
+    // exercises: ofwel volledig vervangen, ofwel één element toevoegen of verwijderen.
+    // Mongo laat geen twee operatoren op hetzelfde veld toe in één update.
+    int exerciseOps = (p.getExercises() != null ? 1 : 0)
+        + (p.getAddExercise() != null ? 1 : 0)
+        + (p.getRemoveExercise() != null ? 1 : 0);
+    if (exerciseOps > 1) {
+      throw new IllegalArgumentException("use only one of exercises, addExercise, removeExercise");
+    }
+
+    UpdateDefinition u = (p.getRemoveExercise() != null) ? removeOne(p) : update(p);
+    // niets te wijzigen → huidige versie teruggeven, zoals de oude PUT deed
+    if (u == null) return get(id);
+
+    Criteria where = Criteria.where("id").is(id);
+    if (p.getVersion() != null) {
+      // oude documenten hebben nog geen version veld; die gelden als versie 0
+      where = (p.getVersion() == 0)
+          ? where.and("version").in(0L, null)
+          : where.and("version").is(p.getVersion());
+    }
+
+    Workout updated = mongo.findAndModify(new Query(where), u,
+        FindAndModifyOptions.options().returnNew(true), Workout.class);
+    if (updated != null) {
+      cache.invalidate(id);
+      // nieuwe/aangepaste oefeningen of andere user → PR's herbekijken
+      if (p.getExercises() != null || p.getAddExercise() != null || p.getUserId() != null) {
+        records.detect(updated.getUserId(), updated.getExercises());
+      }
+      return updated;
+    }
+
+    // geen match: bestaat niet, of versie klopt niet meer (enkel in dit foutpad een extra query)
+    if (p.getVersion() != null && repo.existsById(id)) {
+      throw new OptimisticLockingFailureException("workout " + id + " was modified concurrently");
+    }
+    throw new NoSuchElementException();
+  }
+
+  // Gewone update ($set/$push); null als er niets te wijzigen is
+  private static Update update(WorkoutPatch p) {
+    Update u = new Update();
+    boolean changed = false;
+    if (p.getDate() != null)        { u.set("date", p.getDate());                changed = true; }
+    if (p.getUserId() != null)      { u.set("userId", p.getUserId());            changed = true; }
+    if (p.getExercises() != null)   { u.set("exercises", p.getExercises());      changed = true; }
+    if (p.getAddExercise() != null) { u.push("exercises", p.getAddExercise());   changed = true; }
+    if (!changed) return null;
+    return u.inc("version", 1);
+  }
+
+  // removeExercise: enkel de eerste oefening met die naam verwijderen ($pull zou ze allemaal wissen,
+  // bv. twee "Squat" sets). Kan niet met een gewone update, dus een pipeline update: nog steeds één
+  // atomische findAndModify. Geen oefening met die naam → exercises blijft ongewijzigd.
+  static AggregationUpdate removeOne(WorkoutPatch p) {
+    AggregationUpdate u = AggregationUpdate.update();
+    if (p.getDate() != null)   u.set("date").toValue(p.getDate());
+    if (p.getUserId() != null) u.set("userId").toValue(p.getUserId());
+
+    Document index = new Document("$indexOfArray",
+        List.of(new Document("$ifNull", List.of("$exercises.name", List.of())), p.getRemoveExercise()));
+    Document without = new Document("$concatArrays", List.of(
+        new Document("$slice", List.of("$exercises", "$$i")),
+        new Document("$slice", List.of("$exercises", new Document("$add", List.of("$$i", 1)),
+            new Document("$size", "$exercises")))));
+    Document exercises = new Document("$let", new Document("vars", new Document("i", index))
+        .append("in", new Document("$cond", List.of(new Document("$lt", List.of("$$i", 0)), "$exercises", without))));
+    u.set("exercises").toValue((AggregationExpression) ctx -> exercises);
+
+    // oude documenten zonder version gelden als versie 0
+    u.set("version").toValue((AggregationExpression) ctx ->
+        new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)));
+    return u;
   }
 
   public void delete(String id) {
     repo.deleteById(id);
+    cache.invalidate(id);
   }
 }
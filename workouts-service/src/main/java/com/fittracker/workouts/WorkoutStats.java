@@ -0,0 +1,122 @@
+package com.fittracker.workouts;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+// Trainingsstatistieken (volume, sets, frequentie) berekend in Mongo met een aggregation pipeline.
+// Enkel de geaggregeerde rijen komen terug, niet de volledige workouts.
+@Component
+public class WorkoutStats {
+
+  public enum GroupBy {
+    WEEK, MONTH, EXERCISE;
+
+    public static GroupBy parse(String s) {
+      try {
+        return valueOf(s.trim().toUpperCase(Locale.ROOT));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("groupBy must be week, month or exercise");
+      }
+    }
+  }
+
+  // Eén rij per bucket (ISO week "2025-W07", maand "2025-02" of oefeningnaam)
+  // workouts = aantal workouts, reps = sets × reps opgeteld, volume = sets × reps × gewicht
+  public record Row(String bucket, long workouts, long sets, long reps, double volume) { }
+
+  private final MongoTemplate mongo;
+
+  public WorkoutStats(MongoTemplate mongo) {
+    this.mongo = mongo;
+  }
+
+  public List<Row> stats(UUID userId, Instant from, Instant to, GroupBy groupBy) {
+    TypedAggregation<Workout> aggregation = Aggregation.newAggregation(Workout.class, pipeline(userId, from, to, groupBy));
+    return mongo.aggregate(aggregation, Document.class).getMappedResults().stream()
+        .map(WorkoutStats::toRow)
+        .toList();
+  }
+
+  List<AggregationOperation> pipeline(UUID userId, Instant from, Instant to, GroupBy groupBy) {
+    List<AggregationOperation> ops = new ArrayList<>();
+
+    // zelfde filters als GET /workouts → gebruikt de {userId, date} index
+    List<Criteria> filters = WorkoutService.filters(userId, from, to);
+    if (!filters.isEmpty()) ops.add(Aggregation.match(new Criteria().andOperator(filters)));
+
+    // één document per oefening; voor week/maand ook workouts zonder oefeningen meetellen
+    ops.add(Aggregation.unwind("exercises", groupBy != GroupBy.EXERCISE));
+
+    Object sets = ifNull("$exercises.sets");
+    Object reps = ifNull("$exercises.reps");
+    Object weight = ifNull("$exercises.weight");
+    ops.add(stage("$project", new Document("bucket", bucket(groupBy))
+        .append("sets", sets)
+        .append("reps", new Document("$multiply", List.of(sets, reps)))
+        .append("volume", new Document("$multiply", List.of(sets, reps, weight)))));
+
+    // eerst per (bucket, workout) optellen, dan per bucket: zo tellen we workouts
+    // zonder een (potentieel grote) $addToSet van ids
+    ops.add(stage("$group", new Document("_id", new Document("b", "$bucket").append("w", "$_id"))
+        .append("sets", sum("$sets"))
+        .append("reps", sum("$reps"))
+        .append("volume", sum("$volume"))));
+    ops.add(stage("$group", new Document("_id", "$_id.b")
+        .append("workouts", sum(1))
+        .append("sets", sum("$sets"))
+        .append("reps", sum("$reps"))
+        .append("volume", sum("$volume"))));
+
+    // tijdsbuckets chronologisch, oefeningen met het meeste volume eerst
+    ops.add(stage("$sort", groupBy == GroupBy.EXERCISE
+        ? new Document("volume", -1).append("_id", 1)
+        : new Document("_id", 1)));
+    return ops;
+  }
+
+  private static Object bucket(GroupBy groupBy) {
+    return switch (groupBy) {
+      // %G = ISO week-jaar, %V = ISO weeknummer (01-53), altijd in UTC
+      case WEEK -> new Document("$dateToString", new Document("format", "%G-W%V").append("date", "$date"));
+      case MONTH -> new Document("$dateToString", new Document("format", "%Y-%m").append("date", "$date"));
+      case EXERCISE -> "$exercises.name";
+    };
+  }
+
+  private static Row toRow(Document d) {
+    return new Row(
+        d.get("_id") == null ? null : d.get("_id").toString(),
+        number(d.get("workouts")).longValue(),
+        number(d.get("sets")).longValue(),
+        number(d.get("reps")).longValue(),
+        number(d.get("volume")).doubleValue());
+  }
+
+  private static Number number(Object o) {
+    return (o instanceof Number n) ? n : 0;
+  }
+
+  private static Document ifNull(String field) {
+    return new Document("$ifNull", List.of(field, 0));
+  }
+
+  private static Document sum(Object expr) {
+    return new Document("$sum", expr);
+  }
+
+  // ruwe pipeline stage; de velden na $unwind zitten niet meer in het Workout model
+  private static AggregationOperation stage(String name, Document body) {
+    return context -> new Document(name, body);
+  }
+}
@@ -0,0 +1,51 @@
+package com.fittracker.workouts;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BestLiftsSenderTest {
+
+  ProgressClient progress = mock(ProgressClient.class);
+  BestLiftsSender sender = new BestLiftsSender(progress, Duration.ofHours(1), 500);
+  UUID u1 = UUID.randomUUID();
+  UUID u2 = UUID.randomUUID();
+
+  @Test
+  void add_neverCallsProgress_flushSendsOneBatchWithMaxima() {
+    sender.add(u1, Map.of("bench", 100.0));
+    sender.add(u1, Map.of("bench", 95.0, "squat", 140.0));
+    sender.add(u2, Map.of("deadlift", 180.0));
+    verifyNoInteractions(progress);
+
+    sender.flush();
+
+    verify(progress).mergeBestLifts(Map.of(
+        u1, Map.of("bench", 100.0, "squat", 140.0),
+        u2, Map.of("deadlift", 180.0)));
+    assertEquals(0, sender.pending());
+  }
+
+  @Test
+  void progressDown_keepsBatch_andRetriesNextFlush() {
+    doThrow(new ResourceAccessException("connect timed out")).doNothing().when(progress).mergeBestLifts(anyMap());
+
+    sender.add(u1, Map.of("bench", 100.0));
+    sender.flush();
+    assertEquals(1, sender.pending());
+
+    // intussen een hoger PR: de retry stuurt het maximum
+    sender.add(u1, Map.of("bench", 105.0));
+    sender.flush();
+
+    verify(progress).mergeBestLifts(Map.of(u1, Map.of("bench", 105.0)));
+    assertEquals(0, sender.pending());
+  }
+}
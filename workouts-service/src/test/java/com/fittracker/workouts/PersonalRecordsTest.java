@@ -0,0 +1,85 @@
+package com.fittracker.workouts;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PersonalRecordsTest {
+
+  MongoTemplate mongo = mock(MongoTemplate.class);
+  BestLiftsSender sender = mock(BestLiftsSender.class);
+  PersonalRecords records = new PersonalRecords(mongo, sender);
+  UUID user = UUID.randomUUID();
+
+  @Test
+  void detect_sendsOnlyImprovedMaxima() {
+    // bestaande tabel: bench 100, squat 140
+    Document old = new Document("_id", user).append("lifts", new Document("bench", 100.0).append("squat", 140.0));
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+        eq(Document.class), eq(PersonalRecords.COLLECTION))).thenReturn(old);
+
+    var changed = records.detect(user, List.of(
+        exercise("Bench", 105.0),
+        exercise("bench", 95.0),   // zelfde oefening, lager → telt niet
+        exercise("Squat", 120.0),  // geen PR
+        exercise("Deadlift", 180.0),
+        exercise("Plank", null)));  // geen gewicht → genegeerd
+
+    assertEquals(Map.of("bench", 105.0, "deadlift", 180.0), changed);
+    verify(sender).add(user, changed);
+
+    // één $max update met alle oefeningen uit de workout
+    ArgumentCaptor<UpdateDefinition> captor = ArgumentCaptor.forClass(UpdateDefinition.class);
+    verify(mongo).findAndModify(any(Query.class), captor.capture(), any(FindAndModifyOptions.class),
+        eq(Document.class), eq(PersonalRecords.COLLECTION));
+    Document max = (Document) ((Update) captor.getValue()).getUpdateObject().get("$max");
+    assertEquals(Map.of("lifts.bench", 105.0, "lifts.squat", 120.0, "lifts.deadlift", 180.0), max);
+  }
+
+  @Test
+  void detect_firstWorkout_everyLiftIsRecord() {
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+        eq(Document.class), eq(PersonalRecords.COLLECTION))).thenReturn(null);
+
+    var changed = records.detect(user, List.of(exercise("bench", 60.0)));
+
+    assertEquals(Map.of("bench", 60.0), changed);
+  }
+
+  @Test
+  void detect_noWeights_doesNothing() {
+    var changed = records.detect(user, List.of(exercise("pullup", null)));
+
+    assertTrue(changed.isEmpty());
+    verifyNoInteractions(mongo, sender);
+  }
+
+  @Test
+  void key_normalizesForMongoFieldNames() {
+    assertEquals("bench press", PersonalRecords.key(" Bench Press "));
+    assertEquals("db_row", PersonalRecords.key("DB.Row"));
+    assertEquals("_inc", PersonalRecords.key("$inc"));
+  }
+
+  private static Workout.Exercise exercise(String name, Double weight) {
+    Workout.Exercise e = new Workout.Exercise();
+    e.setName(name);
+    e.setSets(3);
+    e.setReps(5);
+    e.setWeight(weight);
+    return e;
+  }
+}
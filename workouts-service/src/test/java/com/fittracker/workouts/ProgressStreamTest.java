@@ -0,0 +1,147 @@
+package com.fittracker.workouts;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoQueryException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProgressStreamTest {
+
+  MongoTemplate mongo = mock(MongoTemplate.class);
+  ProgressClient progress = mock(ProgressClient.class);
+  ProgressStream stream = new ProgressStream(mongo, progress, 3, Duration.ofHours(1));
+
+  UUID u1 = UUID.randomUUID();
+  UUID u2 = UUID.randomUUID();
+
+  @Test
+  void flush_aggregatesPerUser_andCommitsTokenAfterSend() {
+    stream.accept("insert", new Document("userId", u1), null, token("t1"));
+    stream.accept("insert", new Document("userId", u1), null, token("t2"));
+    stream.accept("delete", null, new Document("userId", u2), token("t3"));
+
+    // max-events (3) bereikt
+    assertTrue(stream.shouldFlush());
+    stream.flush();
+
+    // eerst pending bewaren, dan versturen, dan token vastleggen
+    InOrder order = inOrder(mongo, progress);
+    ArgumentCaptor<Update> pending = ArgumentCaptor.forClass(Update.class);
+    order.verify(mongo).upsert(any(Query.class), pending.capture(), eq(ProgressStream.OFFSETS));
+    order.verify(progress).applyDeltas(anyString(), eq(Map.of(u1, 2, u2, -1)));
+    ArgumentCaptor<Update> commit = ArgumentCaptor.forClass(Update.class);
+    order.verify(mongo).upsert(any(Query.class), commit.capture(), eq(ProgressStream.OFFSETS));
+
+    assertTrue(pending.getValue().modifies("pending"));
+    assertTrue(commit.getValue().toString().contains("t3"));
+    assertFalse(stream.shouldFlush());
+  }
+
+  @Test
+  void flush_insertAndDeleteOfSameUser_cancelOut() {
+    stream.accept("insert", new Document("userId", u1), null, token("t1"));
+    stream.accept("delete", null, new Document("userId", u1), token("t2"));
+
+    stream.flush();
+
+    // netto 0 → niets naar progress-service, maar het token schuift wel op
+    verify(progress, never()).applyDeltas(anyString(), anyMap());
+    verify(mongo, times(2)).upsert(any(Query.class), any(Update.class), eq(ProgressStream.OFFSETS));
+  }
+
+  @Test
+  void recover_resendsPendingBatchWithSameId() {
+    Document state = new Document("_id", ProgressStream.STREAM_ID)
+        .append("token", token("old").toJson())
+        .append("pending", new Document("batchId", "batch-1")
+            .append("deltas", new Document(u1.toString(), 4))
+            .append("token", token("new").toJson()));
+    when(mongo.findById(ProgressStream.STREAM_ID, Document.class, ProgressStream.OFFSETS)).thenReturn(state);
+
+    BsonDocument resumeAt = stream.recover();
+
+    // zelfde batchId → progress-service past hem hoogstens één keer toe
+    verify(progress).applyDeltas("batch-1", Map.of(u1, 4));
+    assertEquals(token("new"), resumeAt);
+  }
+
+  @Test
+  void recover_withoutState_startsFromNow() {
+    assertNull(stream.recover());
+    verifyNoInteractions(progress);
+  }
+
+  @Test
+  void historyLost_detectsExpiredOrInvalidResumeToken() {
+    var lost = new MongoCommandException(new BsonDocument("code", new BsonInt32(286))
+        .append("errmsg", new BsonString("resume point no longer in oplog")), new ServerAddress());
+    assertTrue(ProgressStream.historyLost(lost));
+    assertTrue(ProgressStream.historyLost(new RuntimeException(new MongoQueryException(
+        new BsonDocument("code", new BsonInt32(260)).append("errmsg", new BsonString("bad token")), new ServerAddress()))));
+    assertFalse(ProgressStream.historyLost(new MongoSocketReadException("connection reset", new ServerAddress())));
+  }
+
+  @Test
+  void reset_sendsBufferedEvents_thenClearsOffsetsToStartFromNow() {
+    stream.accept("insert", new Document("userId", u1), null, token("t1"));
+
+    stream.reset(new RuntimeException("ChangeStreamHistoryLost"));
+
+    InOrder order = inOrder(mongo, progress);
+    order.verify(progress).applyDeltas(anyString(), eq(Map.of(u1, 1)));
+    order.verify(mongo).remove(any(Query.class), eq(ProgressStream.OFFSETS));
+    assertFalse(stream.shouldFlush());
+    // geen token meer → recover() laat de stream bij "nu" starten
+    assertNull(stream.recover());
+  }
+
+  @Test
+  void enablePreImages_freshDatabase_createsCollectionWithPreImages() {
+    when(mongo.getCollectionName(Workout.class)).thenReturn("workouts");
+    when(mongo.collectionExists("workouts")).thenReturn(false);
+
+    assertTrue(stream.enablePreImages());
+
+    ArgumentCaptor<CollectionOptions> options = ArgumentCaptor.forClass(CollectionOptions.class);
+    verify(mongo).createCollection(eq("workouts"), options.capture());
+    assertEquals(true, options.getValue().getChangeStreamOptions().orElseThrow().getPreAndPostImages());
+    verify(mongo, never()).executeCommand(any(Document.class));
+  }
+
+  @Test
+  void enablePreImages_existingCollection_usesCollMod_andReportsFailure() {
+    when(mongo.getCollectionName(Workout.class)).thenReturn("workouts");
+    when(mongo.collectionExists("workouts")).thenReturn(true);
+
+    assertTrue(stream.enablePreImages());
+    verify(mongo).executeCommand(new Document("collMod", "workouts")
+        .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+
+    // bv. Mongo onbereikbaar: false zodat de stream het bij de volgende herstart opnieuw probeert
+    when(mongo.executeCommand(any(Document.class))).thenThrow(new IllegalStateException("down"));
+    assertFalse(stream.enablePreImages());
+  }
+
+  private static BsonDocument token(String v) {
+    return new BsonDocument("_data", new BsonString(v));
+  }
+}
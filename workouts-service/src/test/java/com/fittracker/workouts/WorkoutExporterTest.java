@@ -0,0 +1,68 @@
+package com.fittracker.workouts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WorkoutExporterTest {
+
+  MongoTemplate mongo = mock(MongoTemplate.class);
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  @Test
+  void export_writesOneJsonLinePerWorkout_fromCursor() throws Exception {
+    UUID user = UUID.randomUUID();
+    when(mongo.stream(any(Query.class), eq(Workout.class)))
+        .thenReturn(IntStream.range(0, 5).mapToObj(i -> workout("w" + i, user)));
+
+    var exporter = new WorkoutExporter(mongo, mapper, 2);
+    var out = new ByteArrayOutputStream();
+
+    long count = exporter.export(user, null, null, out);
+
+    // 5 documenten → 5 lijnen, elk een volledig JSON-object
+    assertEquals(5, count);
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(5, lines.length);
+    assertEquals("w3", mapper.readTree(lines[3]).get("id").asText());
+
+    // cursor batch size wordt doorgegeven aan Mongo
+    ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+    verify(mongo).stream(captor.capture(), eq(Workout.class));
+    assertEquals(2, captor.getValue().getMeta().getCursorBatchSize());
+    assertTrue(captor.getValue().getQueryObject().toString().contains("userId"));
+  }
+
+  @Test
+  void export_emptyResult_writesNothing() throws Exception {
+    when(mongo.stream(any(Query.class), eq(Workout.class))).thenReturn(Stream.empty());
+
+    var out = new ByteArrayOutputStream();
+    long count = new WorkoutExporter(mongo, mapper, 500).export(null, null, null, out);
+
+    assertEquals(0, count);
+    assertEquals(0, out.size());
+  }
+
+  private static Workout workout(String id, UUID user) {
+    Workout w = new Workout();
+    w.setId(id);
+    w.setUserId(user);
+    w.setDate(Instant.parse("2025-01-01T10:00:00Z"));
+    return w;
+  }
+}
@@ -0,0 +1,102 @@
+package com.fittracker.workouts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkoutIngestTest {
+
+  MongoTemplate mongo = mock(MongoTemplate.class);
+  BulkOperations bulk = mock(BulkOperations.class);
+  PersonalRecords records = mock(PersonalRecords.class);
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  String user = UUID.randomUUID().toString();
+
+  @BeforeEach
+  void setUp() {
+    when(mongo.bulkOps(BulkMode.UNORDERED, Workout.class)).thenReturn(bulk);
+    when(bulk.insert(anyList())).thenReturn(bulk);
+  }
+
+  @Test
+  void ingest_jsonArray_insertsInChunks() throws Exception {
+    String body = "[" + valid() + "," + valid() + "," + valid() + "," + valid() + "," + valid() + "]";
+
+    var res = new WorkoutIngest(mongo, records, mapper, 2).ingest(stream(body));
+
+    // 5 items met chunk size 2 → 3 bulk inserts (2 + 2 + 1)
+    assertEquals(5, res.inserted());
+    assertEquals(0, res.failed());
+    verify(bulk, times(3)).execute();
+    // één PR-check per user per chunk
+    verify(records, times(3)).detect(eq(UUID.fromString(user)), anyList());
+    assertTrue(res.items().stream().allMatch(i -> i.id() != null && i.error() == null));
+  }
+
+  @Test
+  void ingest_ndjson_reportsValidationErrorsPerItem() throws Exception {
+    String body = valid() + "\n" + "{\"date\":\"2025-01-01T10:00:00Z\"}" + "\n" + valid() + "\n";
+
+    var res = new WorkoutIngest(mongo, records, mapper, 500).ingest(stream(body));
+
+    // item 1 mist userId, wordt niet naar Mongo gestuurd
+    assertEquals(2, res.inserted());
+    assertEquals(1, res.failed());
+    assertEquals("userId is required", res.items().get(1).error());
+    assertNull(res.items().get(1).id());
+    assertEquals(List.of(0, 1, 2), res.items().stream().map(WorkoutIngest.Item::index).toList());
+    verify(bulk, times(1)).execute();
+  }
+
+  @Test
+  void ingest_bulkWriteError_marksOnlyFailedItem() throws Exception {
+    var source = new MongoBulkWriteException(
+        BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()),
+        List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)),
+        null, new ServerAddress(), Set.of());
+    when(bulk.execute()).thenThrow(new BulkOperationException("bulk failed", source));
+
+    String body = "[" + valid() + "," + valid() + "," + valid() + "]";
+    var res = new WorkoutIngest(mongo, records, mapper, 500).ingest(stream(body));
+
+    // unordered: enkel item 1 faalt, 0 en 2 zijn wel opgeslagen
+    assertEquals(2, res.inserted());
+    assertEquals("duplicate key", res.items().get(1).error());
+    assertNotNull(res.items().get(0).id());
+    assertNotNull(res.items().get(2).id());
+  }
+
+  @Test
+  void ingest_malformedJson_throwsIllegalArgument() {
+    var ingest = new WorkoutIngest(mongo, records, mapper, 500);
+    assertThrows(IllegalArgumentException.class, () -> ingest.ingest(stream("[{\"userId\":")));
+  }
+
+  private String valid() {
+    return "{\"userId\":\"" + user + "\",\"date\":\"2025-01-01T10:00:00Z\","
+        + "\"exercises\":[{\"name\":\"bench\",\"sets\":3,\"reps\":5,\"weight\":80.0}]}";
+  }
+
+  private static ByteArrayInputStream stream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -1,13 +1,25 @@
 package com.fittracker.workouts;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -23,6 +35,15 @@ class WorkoutServiceTest {
   @Mock
   WorkoutRepo repo;
 
+  @Mock
+  MongoTemplate mongo;
+
+  @Mock
+  PersonalRecords records;
+
+  @Spy
+  WorkoutCache cache = new WorkoutCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+
   @InjectMocks
   WorkoutService service;
 
@@ -60,39 +81,112 @@ class WorkoutServiceTest {
   }
 
   @Test
-  void list_returnsAll_whenNoFilters() {
-    when(repo.findAll()).thenReturn(List.of(w1_u1_now, w2_u1_yesterday, w3_u2_now));
+  void list_noFilters_queriesMongoSortedWithoutCriteria() {
+    when(mongo.find(any(Query.class), eq(Workout.class))).thenReturn(List.of(w1_u1_now, w2_u1_yesterday, w3_u2_now));
+
+    var res = service.list(null, null, null, null, null);
+
+    // geen filters → lege query, nieuwste eerst, nooit findAll
+    assertEquals(3, res.items().size());
+    assertNull(res.next());
+    Query q = capturedQuery();
+    assertTrue(q.getQueryObject().isEmpty());
+    assertEquals(-1, q.getSortObject().get("date"));
+    assertEquals(-1, q.getSortObject().get("id"));
+    assertEquals(WorkoutService.DEFAULT_LIMIT + 1, q.getLimit());
+    verify(repo, never()).findAll();
+  }
+
+  @Test
+  void list_filtersByUserAndDateRange_pushedDownToMongo() {
+    when(mongo.find(any(Query.class), eq(Workout.class))).thenReturn(List.of(w1_u1_now));
 
-    var res = service.list(null, null, null);
+    Instant from = now.minusSeconds(10);
+    Instant to   = now.plusSeconds(10);
+
+    var res = service.list(u1, from, to, null, null);
 
-    // geen filters → alles terug
-    assertEquals(3, res.size());
-    verify(repo).findAll();
+    assertEquals(1, res.items().size());
+    // user + datumrange zitten in de query zelf
+    String query = capturedQuery().getQueryObject().toString();
+    assertTrue(query.contains("userId"));
+    assertTrue(query.contains("$gte"));
+    assertTrue(query.contains("$lte"));
   }
 
   @Test
-  void list_filtersByUser_onlyThatUsersWorkouts() {
-    when(repo.findAll()).thenReturn(List.of(w1_u1_now, w2_u1_yesterday, w3_u2_now));
+  void list_onlyFrom_filtersLowerBound() {
+    when(mongo.find(any(Query.class), eq(Workout.class))).thenReturn(List.of());
 
-    var res = service.list(u1, null, null);
+    service.list(null, yesterday, null, null, null);
 
-    // enkel workouts van die user
-    assertEquals(2, res.size());
-    assertTrue(res.stream().allMatch(w -> u1.equals(w.getUserId())));
+    // alleen "from" → enkel ondergrens, geen bovengrens
+    String query = capturedQuery().getQueryObject().toString();
+    assertTrue(query.contains("$gte"));
+    assertFalse(query.contains("$lte"));
   }
 
   @Test
-  void list_filtersByUserAndDateRange_inclusive() {
-    when(repo.findAll()).thenReturn(List.of(w1_u1_now, w2_u1_yesterday, w3_u2_now));
+  void list_returnsNextCursor_whenMoreThanLimit() {
+    when(mongo.find(any(Query.class), eq(Workout.class))).thenReturn(List.of(w1_u1_now, w2_u1_yesterday, w3_u2_now));
 
-    // range die alleen "now" pakt, niet "yesterday"
-    Instant from = now.minusSeconds(10);
-    Instant to   = now.plusSeconds(10);
+    var res = service.list(null, null, null, 2, null);
+
+    // limit 2 → 2 items + cursor die naar het laatste item wijst
+    assertEquals(2, res.items().size());
+    assertEquals(3, capturedQuery().getLimit());
+    var cursor = WorkoutCursor.decode(res.next());
+    assertEquals("B", cursor.id());
+    assertEquals(yesterday.toEpochMilli(), cursor.date().toEpochMilli());
+  }
+
+  @Test
+  void list_withCursor_addsKeysetCondition() {
+    when(mongo.find(any(Query.class), eq(Workout.class))).thenReturn(List.of());
+    String token = new WorkoutCursor(yesterday, "B").encode();
 
-    var res = service.list(u1, from, to);
+    service.list(u1, null, null, null, token);
 
-    assertEquals(1, res.size());
-    assertEquals("A", res.get(0).getId());
+    // cursor → (date < d) OR (date = d AND id < id)
+    String query = capturedQuery().getQueryObject().toString();
+    assertTrue(query.contains("$or"));
+    assertTrue(query.contains("$lt"));
+  }
+
+  @Test
+  void list_lastItemWithoutDate_stillReturnsCursor_thatContinuesInNullDates() {
+    Workout undated = new Workout();
+    undated.setId("C");
+    when(mongo.find(any(Query.class), eq(Workout.class))).thenReturn(List.of(w1_u1_now, undated, w3_u2_now));
+
+    var res = service.list(null, null, null, 2, null);
+
+    var cursor = WorkoutCursor.decode(res.next());
+    assertNull(cursor.date());
+    assertEquals("C", cursor.id());
+
+    // volgende pagina: enkel workouts zonder datum met een kleiner id
+    String next = WorkoutService.after(cursor).getCriteriaObject().toString();
+    assertTrue(next.contains("date=null"));
+    assertTrue(next.contains("$lt"));
+  }
+
+  @Test
+  void list_datedCursor_alsoReachesWorkoutsWithoutDate() {
+    String after = WorkoutService.after(new WorkoutCursor(yesterday, "B")).getCriteriaObject().toString();
+    assertTrue(after.contains("date=null"));
+  }
+
+  @Test
+  void list_invalidCursor_throws() {
+    assertThrows(IllegalArgumentException.class, () -> service.list(null, null, null, null, "@@nope"));
+    verifyNoInteractions(mongo);
+  }
+
+  private Query capturedQuery() {
+    ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+    verify(mongo).find(captor.capture(), eq(Workout.class));
+    return captor.getValue();
   }
 
   @Test
@@ -106,6 +200,45 @@ class WorkoutServiceTest {
     verify(repo).findById("A");
   }
 
+  @Test
+  void get_secondCallServedFromCache() {
+    when(repo.findById("A")).thenReturn(Optional.of(w1_u1_now));
+
+    service.get("A");
+    var res = service.get("A");
+
+    // tweede keer geen Mongo call meer
+    assertSame(w1_u1_now, res);
+    verify(repo, times(1)).findById("A");
+  }
+
+  @Test
+  void get_afterPatch_reloadsFromMongo() {
+    when(repo.findById("A")).thenReturn(Optional.of(w1_u1_now));
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class)))
+        .thenReturn(w1_u1_now);
+
+    service.get("A");
+    WorkoutPatch p = new WorkoutPatch();
+    p.setDate(now);
+    service.patch("A", p);
+    service.get("A");
+
+    // update invalideert de cache entry → opnieuw laden
+    verify(repo, times(2)).findById("A");
+  }
+
+  @Test
+  void get_afterDelete_isNotServedFromCache() {
+    when(repo.findById("A")).thenReturn(Optional.of(w1_u1_now), Optional.empty());
+
+    service.get("A");
+    service.delete("A");
+
+    assertThrows(NoSuchElementException.class, () -> service.get("A"));
+    verify(cache).invalidate("A");
+  }
+
   @Test
   void get_throws_whenNotFound() {
     when(repo.findById("X")).thenReturn(Optional.empty());
@@ -131,18 +264,20 @@ class WorkoutServiceTest {
     verify(repo).save(captor.capture());
     var passedToRepo = captor.getValue();
     assertNull(passedToRepo.getId(), "Service moet id nullen");
+    assertEquals(0L, passedToRepo.getVersion());
     assertSame(saved, passedToRepo);
+    // nieuwe workout → PR-detectie voor die user
+    verify(records).detect(u1, null);
   }
 
   @Test
-  void update_patchesNonNullFields() {
-    Workout current = new Workout();
-    current.setId("A");
-    current.setUserId(u1);
-    current.setDate(twoDaysAgo);
-
-    when(repo.findById("A")).thenReturn(Optional.of(current));
-    when(repo.save(any(Workout.class))).thenAnswer(inv -> inv.getArgument(0));
+  void update_patchesNonNullFields_inSingleFindAndModify() {
+    Workout updatedDoc = new Workout();
+    updatedDoc.setId("A");
+    updatedDoc.setUserId(u2);
+    updatedDoc.setDate(yesterday);
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class)))
+        .thenReturn(updatedDoc);
 
     Workout patch = new Workout();
     patch.setUserId(u2);          // wordt overschreven
@@ -151,10 +286,100 @@ class WorkoutServiceTest {
 
     var updated = service.update("A", patch);
 
-    // enkel non-null velden aangepast
-    assertEquals(u2, updated.getUserId());
-    assertEquals(yesterday, updated.getDate());
-    verify(repo).save(updated);
+    // enkel non-null velden in $set, geen findById + save meer
+    assertSame(updatedDoc, updated);
+    Document set = (Document) capturedUpdate().getUpdateObject().get("$set");
+    assertEquals(u2, set.get("userId"));
+    assertEquals(yesterday, set.get("date"));
+    assertFalse(set.containsKey("exercises"));
+    verify(repo, never()).save(any());
+    verify(repo, never()).findById(any());
+  }
+
+  @Test
+  void patch_addExercise_usesPushAndIncrementsVersion() {
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class)))
+        .thenReturn(w1_u1_now);
+
+    Workout.Exercise squat = new Workout.Exercise();
+    squat.setName("squat");
+    WorkoutPatch p = new WorkoutPatch();
+    p.setAddExercise(squat);
+
+    service.patch("A", p);
+
+    // één element toevoegen met $push, de rest van de array blijft onaangeroerd
+    Document update = capturedUpdate().getUpdateObject();
+    assertSame(squat, ((Document) update.get("$push")).get("exercises"));
+    verify(records).detect(w1_u1_now.getUserId(), w1_u1_now.getExercises());
+    assertEquals(1, ((Document) update.get("$inc")).get("version"));
+    assertNull(update.get("$set"));
+  }
+
+  @Test
+  void patch_removeExercise_removesOnlyFirstWithThatName() {
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class)))
+        .thenReturn(w1_u1_now);
+
+    WorkoutPatch p = new WorkoutPatch();
+    p.setRemoveExercise("bench");
+
+    service.patch("A", p);
+
+    // geen $pull (die wist alle "bench" oefeningen) maar een pipeline op de index van de eerste
+    ArgumentCaptor<UpdateDefinition> captor = ArgumentCaptor.forClass(UpdateDefinition.class);
+    verify(mongo).findAndModify(any(Query.class), captor.capture(), any(FindAndModifyOptions.class), eq(Workout.class));
+    AggregationUpdate update = assertInstanceOf(AggregationUpdate.class, captor.getValue());
+    String pipeline = update.toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+    assertTrue(pipeline.contains("$indexOfArray"));
+    assertTrue(pipeline.contains("bench"));
+    assertFalse(pipeline.contains("$pull"));
+    assertTrue(pipeline.contains("version"));
+  }
+
+  @Test
+  void patch_replaceAndAddExercise_rejected() {
+    WorkoutPatch p = new WorkoutPatch();
+    p.setExercises(List.of());
+    p.setAddExercise(new Workout.Exercise());
+
+    // $set en $push op hetzelfde veld kan niet in één update
+    assertThrows(IllegalArgumentException.class, () -> service.patch("A", p));
+    verifyNoInteractions(mongo);
+  }
+
+  @Test
+  void patch_versionMismatch_throwsConflict() {
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class)))
+        .thenReturn(null);
+    when(repo.existsById("A")).thenReturn(true);
+
+    WorkoutPatch p = new WorkoutPatch();
+    p.setDate(now);
+    p.setVersion(3L);
+
+    // document bestaat, maar niet meer met versie 3 → conflict
+    assertThrows(OptimisticLockingFailureException.class, () -> service.patch("A", p));
+    ArgumentCaptor<Query> q = ArgumentCaptor.forClass(Query.class);
+    verify(mongo).findAndModify(q.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class));
+    assertEquals(3L, q.getValue().getQueryObject().get("version"));
+  }
+
+  @Test
+  void patch_missingDocument_throwsNotFound() {
+    when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Workout.class)))
+        .thenReturn(null);
+
+    WorkoutPatch p = new WorkoutPatch();
+    p.setDate(now);
+
+    assertThrows(NoSuchElementException.class, () -> service.patch("X", p));
+  }
+
+  private Update capturedUpdate() {
+    ArgumentCaptor<UpdateDefinition> captor = ArgumentCaptor.forClass(UpdateDefinition.class);
+    verify(mongo).findAndModify(any(Query.class), captor.capture(), any(FindAndModifyOptions.class), eq(Workout.class));
+    return (Update) captor.getValue();
   }
 
   @Test
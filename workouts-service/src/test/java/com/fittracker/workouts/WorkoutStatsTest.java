@@ -0,0 +1,62 @@
+package com.fittracker.workouts;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WorkoutStatsTest {
+
+  MongoTemplate mongo = mock(MongoTemplate.class);
+  WorkoutStats stats = new WorkoutStats(mongo);
+  UUID user = UUID.randomUUID();
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void stats_weekly_groupsInMongoAndMapsRows() {
+    var raw = List.of(new Document("_id", "2025-W07").append("workouts", 2).append("sets", 6).append("reps", 30).append("volume", 2400.0));
+    when(mongo.aggregate(any(TypedAggregation.class), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(raw, new Document()));
+
+    var rows = stats.stats(user, null, null, WorkoutStats.GroupBy.WEEK);
+
+    // enkel de geaggregeerde rij komt terug
+    assertEquals(List.of(new WorkoutStats.Row("2025-W07", 2, 6, 30, 2400.0)), rows);
+
+    ArgumentCaptor<TypedAggregation<Workout>> captor = ArgumentCaptor.forClass(TypedAggregation.class);
+    verify(mongo).aggregate(captor.capture(), eq(Document.class));
+    String pipeline = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+    assertTrue(pipeline.contains("$match"));
+    assertTrue(pipeline.contains("%G-W%V"));
+    assertTrue(pipeline.contains("$group"));
+  }
+
+  @Test
+  void pipeline_perExercise_dropsWorkoutsWithoutExercises_andSortsByVolume() {
+    var ops = stats.pipeline(null, null, null, WorkoutStats.GroupBy.EXERCISE);
+    var stages = Aggregation.newAggregation(ops).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+    // geen filters → geen $match stage
+    assertFalse(stages.get(0).containsKey("$match"));
+    assertEquals("$exercises", stages.get(0).get("$unwind"));
+    assertEquals("$exercises.name", ((Document) stages.get(1).get("$project")).get("bucket"));
+    assertEquals(-1, ((Document) stages.get(stages.size() - 1).get("$sort")).get("volume"));
+  }
+
+  @Test
+  void groupBy_parse_rejectsUnknown() {
+    assertEquals(WorkoutStats.GroupBy.MONTH, WorkoutStats.GroupBy.parse("Month"));
+    assertThrows(IllegalArgumentException.class, () -> WorkoutStats.GroupBy.parse("day"));
+  }
+}